@@ -0,0 +1,308 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+// Benchmarks for the simulation hot paths, run with: mvn -Pbench compile exec:java
+// Each case is warmed up, then timed in fixed-length iterations; results are written as JSON so runs can be diffed.
+// (JMH refuses benchmark classes in the default package, which is where all of the game's classes live.)
+public class Benchmarks {
+
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Results are folded in here so the JIT can't drop the benchmarked work
+    private static volatile long sink;
+
+    private final List<Result> results = new ArrayList<>();
+    private final String filter;
+    private final int warmupIterations;
+    private final int measureIterations;
+
+    private record Result(String name, String param, double nanosPerOp, double min, double max, double allocPerOp) {}
+
+    public Benchmarks(String filter, int warmupIterations, int measureIterations) {
+        this.filter = filter;
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path out = Path.of("target", "bench-results.json");
+        String filter = "";
+        int warmup = 3;
+        int iterations = 5;
+
+        for (String arg : args) {
+            if (arg.startsWith("--out=")) out = Path.of(arg.substring(6));
+            else if (arg.startsWith("--filter=")) filter = arg.substring(9);
+            else if (arg.startsWith("--warmup=")) warmup = Integer.parseInt(arg.substring(9));
+            else if (arg.startsWith("--iterations=")) iterations = Integer.parseInt(arg.substring(13));
+        }
+
+        Benchmarks bench = new Benchmarks(filter, warmup, iterations);
+        bench.runAll();
+        bench.writeJson(out);
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    private void runAll() {
+        int[] levels = { 10, 50, 100, 200 };
+
+        for (int level : levels) {
+            Maze maze = new Maze(1);
+            run("maze.resetMaze", "level=" + level, () -> {
+                maze.resetMaze(level, Maze.levelSeed(1, level));
+                return maze.getExit().row;
+            });
+        }
+
+        // Twenty level-50 mazes per op, single-threaded against every core
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads : cores > 1 ? new int[] { 1, cores } : new int[] { 1 }) {
+            run("mazeBatch.generateRun", "threads=" + threads, () -> {
+                Maze[] mazes = MazeBatch.generateRun(1, 50, 20, threads);
+                return mazes[mazes.length - 1].getExit().row;
+            });
+        }
+
+        // Every generator on its own, without item placement. The cells are reused, so B/op is the generator's
+        // working memory (Sidewinder's rows are carved on pool threads and aren't counted).
+        for (String name : new String[] { "backtracker", "kruskal", "wilson", "eller", "sidewinder" }) {
+            MazeGenerator generator = MazeGenerator.named(name);
+
+            for (int size : new int[] { 256, 1024 }) {
+                byte[] cells = new byte[size * size];
+                String param = "size=" + size;
+                run("generator." + name, param, () -> {
+                    Arrays.fill(cells, (byte) Cell.WALLS);
+                    generator.carve(cells, size, size, new SplittableRandom(size));
+                    return cells[cells.length - 1];
+                });
+                printCellsPerSecond("generator." + name, param, cells.length);
+            }
+        }
+
+        // A 4000 x 4000 level carved by the default generator, the largest size it's meant to handle in under a second
+        byte[] largest = new byte[4000 * 4000];
+        run("generator.backtracker", "size=4000", () -> {
+            Arrays.fill(largest, (byte) Cell.WALLS);
+            MazeGenerator.BACKTRACKER.carve(largest, 4000, 4000, new SplittableRandom(4000));
+            return largest[largest.length - 1];
+        });
+        printCellsPerSecond("generator.backtracker", "size=4000", largest.length);
+
+        // Eller streamed row by row: 16M cells through a few row-wide arrays, the maze itself is never stored
+        int streamRows = 16384;
+        int streamCols = 1024;
+        run("generator.eller.stream", "16384x1024", () -> {
+            long[] hash = { 0 };
+            EllerGenerator.generate(streamRows, streamCols, new SplittableRandom(1), (row, flags) -> hash[0] += flags[row % streamCols]);
+            return hash[0];
+        });
+        printCellsPerSecond("generator.eller.stream", "16384x1024", (long) streamRows * streamCols);
+
+        // Coin, shop and exit placement on a level-100 grid, up to a completely filled one
+        Maze placement = new Maze(1);
+        placement.resetMaze(100, Maze.levelSeed(1, 100));
+        int placementCells = placement.getRows() * placement.getCols();
+        for (double density : new double[] { 1 / 6.0, 0.5, 0.9, 1.0 }) {
+            int coins = (int) (placementCells * density);
+            run("maze.placeItems", String.format(Locale.ROOT, "density=%.2f", density), () -> {
+                placement.placeItems(coins);
+                return placement.getExit().row;
+            });
+        }
+
+        for (int level : levels) {
+            Simulation simulation = levelSimulation(level);
+            CollisionSystem collision = new CollisionSystem(simulation.getMaze(), simulation.getPlayer(), GameSounds.SILENT);
+            double[] steps = { 0.8, -0.8, 2.5, -2.5 };
+
+            run("collision.canMove", "level=" + level, new LongSupplier() {
+                int i = 0;
+                public long getAsLong() {
+                    double step = steps[i++ & 3];
+                    return (collision.canMove(step, 0) ? 1 : 0) + (collision.canMove(0, step) ? 2 : 0);
+                }
+            });
+        }
+
+        // One tick's worth of movement at increasing speed upgrades, the sweep cost follows the distance
+        Simulation sweepSimulation = levelSimulation(50);
+        CollisionSystem sweepCollision = new CollisionSystem(sweepSimulation.getMaze(), sweepSimulation.getPlayer(), GameSounds.SILENT);
+        for (int speedLevel : new int[] { 1, 100, 10000 }) {
+            double distance = (sweepSimulation.getPlayer().getSpeed() + speedLevel * 25) / 120.0;
+
+            run("collision.sweep", "speedLevel=" + speedLevel, () -> {
+                double moved = sweepCollision.sweep(distance, 0) + sweepCollision.sweep(0, -distance);
+                return (long) (moved * 1000);
+            });
+        }
+
+        for (int level : levels) {
+            Simulation simulation = levelSimulation(level);
+            CollisionSystem collision = new CollisionSystem(simulation.getMaze(), simulation.getPlayer(), GameSounds.SILENT);
+
+            run("collision.checkCoinCollisions", "level=" + level, () -> {
+                collision.checkCoinCollisions();
+                return simulation.getPlayer().getCoins();
+            });
+        }
+
+        for (int level : levels) {
+            Simulation simulation = levelSimulation(level);
+            simulation.setMoveRight(true);
+            simulation.setMoveDown(true);
+
+            run("simulation.update", "level=" + level, () -> {
+                simulation.update(1.0 / 120);
+                return (long) simulation.getPlayer().getX();
+            });
+        }
+
+        // A wandering player: direction changes, coin pickups and visibility updates, should allocate 0 B/op
+        Simulation walker = levelSimulation(20);
+        run("simulation.update", "wander", new LongSupplier() {
+            int i = 0;
+            public long getAsLong() {
+                if (i++ % 40 == 0) walker.applyInput(1 << (i / 40 & 3));
+                walker.update(1.0 / 120);
+                return walker.getPlayer().getCoins();
+            }
+        });
+
+        // Save and load of a level-100 run, plus the save's size against Java serialization of one int per cell
+        Simulation saved = levelSimulation(100);
+        Path saveFile = Path.of("target", "bench-save.mzs");
+        run("saveGame.write", "level=100", () -> {
+            try {
+                Files.createDirectories(saveFile.getParent());
+                SaveGame.write(saved, saveFile);
+                return Files.size(saveFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        run("saveGame.read", "level=100", () -> {
+            try {
+                SaveGame.read(saveFile, saved);
+                return saved.getMaze().getRows();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        printSaveSizes(saved, saveFile);
+
+        // Renderer.drawWorld isn't covered: it needs a running JavaFX toolkit with a graphics pipeline,
+        // which headless CI machines don't have.
+    }
+
+    private static void printSaveSizes(Simulation simulation, Path saveFile) {
+        if (!Files.exists(saveFile)) return;   // filtered out
+
+        Maze maze = simulation.getMaze();
+        int[][] naive = new int[maze.getRows()][maze.getCols()];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(naive);
+            System.out.printf("Save size at level 100: %,d bytes, ObjectOutputStream of int[rows][cols]: %,d bytes%n",
+                    Files.size(saveFile), bytes.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Throughput of the case just run, unless it was filtered out
+    private void printCellsPerSecond(String name, String param, long cells) {
+        if (results.isEmpty()) return;
+
+        Result last = results.get(results.size() - 1);
+        if (!last.name().equals(name) || !last.param().equals(param)) return;
+
+        System.out.printf("%-34s %-12s %,16.0f cells/s%n", "", "", cells * 1e9 / last.nanosPerOp());
+    }
+
+    // A simulation fast-forwarded to the given level (it starts on level 0), player at the maze center
+    private static Simulation levelSimulation(int level) {
+        Simulation simulation = new Simulation(GameSounds.SILENT, 1);
+        for (int i = 0; i < level; i++) simulation.nextLevel();
+        return simulation;
+    }
+
+    // Runs op repeatedly for each iteration, recording nanoseconds and allocated bytes per call
+    public void run(String name, String param, LongSupplier op) {
+        if (!(name + " " + param).contains(filter)) return;
+
+        for (int i = 0; i < warmupIterations; i++) iteration(op, null);
+
+        double[] scores = new double[measureIterations];
+        double[] alloc = new double[1];
+        double allocTotal = 0;
+        for (int i = 0; i < measureIterations; i++) {
+            scores[i] = iteration(op, alloc);
+            allocTotal += alloc[0];
+        }
+
+        double sum = 0, min = Double.MAX_VALUE, max = 0;
+        for (double score : scores) {
+            sum += score;
+            min = Math.min(min, score);
+            max = Math.max(max, score);
+        }
+
+        Result result = new Result(name, param, sum / scores.length, min, max, allocTotal / measureIterations);
+        results.add(result);
+        System.out.printf("%-34s %-12s %,16.1f ns/op  (min %,.1f, max %,.1f)  %,10.1f B/op%n",
+            name, param, result.nanosPerOp(), min, max, result.allocPerOp());
+    }
+
+    private double iteration(LongSupplier op, double[] allocPerOp) {
+        long thread = Thread.currentThread().threadId();
+        long allocStart = THREADS.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long ops = 0;
+        long result = 0;
+        long elapsed;
+
+        do {
+            result += op.getAsLong();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+
+        if (allocPerOp != null) allocPerOp[0] = (THREADS.getThreadAllocatedBytes(thread) - allocStart) / (double) ops;
+        sink += result;
+        return elapsed / (double) ops;
+    }
+
+    private void writeJson(Path out) throws IOException {
+        if (out.getParent() != null) Files.createDirectories(out.getParent());
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                writer.printf(Locale.ROOT,
+                    "  {\"benchmark\": \"%s\", \"params\": \"%s\", \"mode\": \"avgt\", \"unit\": \"ns/op\", "
+                        + "\"score\": %.3f, \"min\": %.3f, \"max\": %.3f, \"allocBytesPerOp\": %.1f}%s%n",
+                    r.name(), r.param(), r.nanosPerOp(), r.min(), r.max(), r.allocPerOp(),
+                    i < results.size() - 1 ? "," : "");
+            }
+            writer.println("]");
+        }
+    }
+}
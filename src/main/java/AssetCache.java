@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import javafx.scene.image.Image;
+import javafx.scene.media.AudioClip;
+
+// Every image and sound is decoded at most once and the same instance is handed to everyone who asks for it.
+// Images can be queued for decoding on a background thread ahead of time, asking for one that's still loading
+// waits for it. Load time and decoded size are kept per asset for report().
+public class AssetCache {
+
+    private static final double DEFAULT_CLIP_SECONDS = 1.0;   // for a clip whose header can't be read
+
+    private static class Stats {
+        final long loadNanos;
+        final long bytes;       // decoded size, -1 when unknown
+
+        Stats(long loadNanos, long bytes) {
+            this.loadNanos = loadNanos;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Map<String, CompletableFuture<Image>> images = new ConcurrentHashMap<>();
+    private final Map<String, AudioClip> clips = new ConcurrentHashMap<>();
+    private final Map<String, AudioFileFormat> clipFormats = new ConcurrentHashMap<>();
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private ExecutorService loader;
+
+    // Starts decoding the images on a background thread, later image() calls pick up the result
+    public void preloadImages(String... paths) {
+        if (loader == null) {
+            loader = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "asset-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        for (String path : paths) {
+            images.computeIfAbsent(path, p -> CompletableFuture.supplyAsync(() -> decodeImage(p), loader));
+        }
+    }
+
+    public Image image(String path) {
+        return images.computeIfAbsent(path, p -> CompletableFuture.completedFuture(decodeImage(p))).join();
+    }
+
+    public AudioClip clip(String path) {
+        return clips.computeIfAbsent(path, this::decodeClip);
+    }
+
+    // Length from the file header, so callers can tell when a clip has finished playing
+    public double clipSeconds(String path) {
+        AudioFileFormat format = clipFormat(path);
+        if (format == null || format.getFrameLength() <= 0) return DEFAULT_CLIP_SECONDS;
+
+        return format.getFrameLength() / format.getFormat().getFrameRate();
+    }
+
+    private Image decodeImage(String path) {
+        long start = System.nanoTime();
+        Image image = new Image(resource(path).toExternalForm());
+
+        // Decoded as 32-bit pixels
+        stats.put(path, new Stats(System.nanoTime() - start, (long) image.getWidth() * (long) image.getHeight() * 4));
+        return image;
+    }
+
+    private AudioClip decodeClip(String path) {
+        long start = System.nanoTime();
+        AudioClip clip = new AudioClip(resource(path).toExternalForm());
+        long nanos = System.nanoTime() - start;
+
+        // Clips are held as PCM, the same size as the WAV data
+        AudioFileFormat format = clipFormat(path);
+        long bytes = format == null || format.getFrameLength() <= 0 ? -1
+                : (long) format.getFrameLength() * format.getFormat().getFrameSize();
+
+        stats.put(path, new Stats(nanos, bytes));
+        return clip;
+    }
+
+    private AudioFileFormat clipFormat(String path) {
+        return clipFormats.computeIfAbsent(path, p -> {
+            try {
+                return AudioSystem.getAudioFileFormat(resource(p));
+            } catch (IOException | UnsupportedAudioFileException e) {
+                return null;    // not cached, computeIfAbsent skips null results
+            }
+        });
+    }
+
+    private URL resource(String path) {
+        URL url = getClass().getResource(path);
+        if (url == null) throw new IllegalArgumentException("Missing asset: " + path);
+        return url;
+    }
+
+    // One line per loaded asset plus totals, in path order
+    public void report(PrintStream out) {
+        long totalNanos = 0;
+        long totalBytes = 0;
+
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Stats asset = entry.getValue();
+            String size = asset.bytes < 0 ? "?" : String.format("%.1f KB", asset.bytes / 1024.0);
+
+            out.printf("%-28s %8.2f ms %12s%n", entry.getKey(), asset.loadNanos / 1e6, size);
+            totalNanos += asset.loadNanos;
+            totalBytes += Math.max(0, asset.bytes);
+        }
+        out.printf("%-28s %8.2f ms %9.1f KB%n", stats.size() + " assets", totalNanos / 1e6, totalBytes / 1024.0);
+    }
+}
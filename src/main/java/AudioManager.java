@@ -1,60 +1,67 @@
-import java.util.List;
-import java.util.Random;
-
 import javafx.scene.media.AudioClip;
 import javafx.scene.media.Media;
 import javafx.scene.media.MediaPlayer;
 
-public class AudioManager {
+public class AudioManager implements GameSounds {
+
+    // Voice caps per sound, a second footstep overlaps the tail of the previous one
+    private static final int MAX_COIN_VOICES = 4;
+    private static final int MAX_WALL_BREAK_VOICES = 2;
+    private static final int MAX_FOOTSTEP_VOICES = 2;
 
     private MediaPlayer backgroundAudio;
-    private List<AudioClip> coinPickupSounds;
-    private List<AudioClip> wallBreakSounds;
-    private List<AudioClip> footstepSounds;
-    private int lastFootstep = -1;
-    private Random random = new Random();
+    private final AssetCache assets;
+
+    // All clips are decoded once up front, indexed [channel][clip]
+    private final AudioClip[][] clips = new AudioClip[3][];
+    private final AudioMixer mixer = new AudioMixer(this::playClip);
+    private final int coinPickup;
+    private final int wallBreak;
+    private final int footstep;
+
+    public AudioManager(AssetCache assets) {
+        this.assets = assets;
 
-    public AudioManager() {
         backgroundAudio = new MediaPlayer(new Media(getClass().getResource("/audio/background.wav").toExternalForm()));
         backgroundAudio.setCycleCount(MediaPlayer.INDEFINITE);
         backgroundAudio.setVolume(0.025);
 
-        coinPickupSounds = List.of(
-            new AudioClip(getClass().getResource("/audio/coinPickup1.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/coinPickup2.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/coinPickup3.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/coinPickup4.wav").toExternalForm())
-        );
-
-        wallBreakSounds = List.of(
-            new AudioClip(getClass().getResource("/audio/wallBreak1.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/wallBreak2.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/wallBreak3.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/wallBreak4.wav").toExternalForm())
-        );
-
-        footstepSounds = List.of(
-            new AudioClip(getClass().getResource("/audio/footstep1.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/footstep2.wav").toExternalForm()),
-            new AudioClip(getClass().getResource("/audio/footstep3.wav").toExternalForm())
-        );
+        coinPickup = loadChannel(MAX_COIN_VOICES,
+            "coinPickup1.wav", "coinPickup2.wav", "coinPickup3.wav", "coinPickup4.wav");
+
+        wallBreak = loadChannel(MAX_WALL_BREAK_VOICES,
+            "wallBreak1.wav", "wallBreak2.wav", "wallBreak3.wav", "wallBreak4.wav");
+
+        footstep = loadChannel(MAX_FOOTSTEP_VOICES,
+            "footstep1.wav", "footstep2.wav", "footstep3.wav");
+    }
+
+    private int loadChannel(int maxVoices, String... names) {
+        AudioClip[] channelClips = new AudioClip[names.length];
+        double[] seconds = new double[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            channelClips[i] = assets.clip("/audio/" + names[i]);
+            seconds[i] = assets.clipSeconds("/audio/" + names[i]);
+        }
+
+        int channel = mixer.addChannel(maxVoices, seconds);
+        clips[channel] = channelClips;
+        return channel;
     }
 
+    private void playClip(int channel, int clip) { clips[channel][clip].play(); }
+
+    public AudioMixer getMixer() { return mixer; }
+
+    // Plays what the ticks of this frame triggered, called once per frame
+    public void flush(long now) { mixer.flush(now); }
+
     public void playBackground() { backgroundAudio.play(); }
     public void stopBackground() { backgroundAudio.stop(); }
     public void pauseBackground() { backgroundAudio.pause(); }
-    public void playCoinPickup() { coinPickupSounds.get(random.nextInt(coinPickupSounds.size())).play(); }
-    public void playWallBreak() { wallBreakSounds.get(random.nextInt(wallBreakSounds.size())).play(); }
-
-    // Random but not the last one played
-    public void playFootstep() {
-        int index;
 
-        do {
-            index = random.nextInt(footstepSounds.size());
-        } while (index == lastFootstep);
-
-        lastFootstep = index;
-        footstepSounds.get(index).play();
-    }
+    @Override public void playCoinPickup() { mixer.trigger(coinPickup); }
+    @Override public void playWallBreak() { mixer.trigger(wallBreak); }
+    @Override public void playFootstep() { mixer.trigger(footstep); }
 }
@@ -0,0 +1,111 @@
+import java.util.SplittableRandom;
+
+// Sits between the sound events and the clips. While the simulation ticks, triggers are only counted, then
+// flush() plays at most one clip per channel per frame and only while that channel is under its voice cap,
+// so a burst of events in one frame costs one clip start instead of a pile of overlapping ones.
+// AudioClip can't report its running instances, so voices are tracked by clip length instead.
+public class AudioMixer {
+
+    public interface Output {
+        void play(int channel, int clip);
+    }
+
+    private static class Channel {
+        final long[] clipNanos;
+        final long[] voiceEnds;     // when each voice slot frees up again
+        int pending = 0;
+        int lastClip = -1;
+
+        Channel(int maxVoices, long[] clipNanos) {
+            this.clipNanos = clipNanos;
+            this.voiceEnds = new long[maxVoices];
+        }
+    }
+
+    private static final int MAX_CHANNELS = 8;
+
+    private final Output output;
+    private final Channel[] channels = new Channel[MAX_CHANNELS];
+    private int channelCount = 0;
+    private final SplittableRandom random = new SplittableRandom();
+
+    private int activeVoices = 0;
+    private long triggers = 0;
+    private long played = 0;
+    private long coalesced = 0;
+    private long dropped = 0;
+
+    public AudioMixer(Output output) {
+        this.output = output;
+    }
+
+    public int getActiveVoices() { return activeVoices; }
+    public long getTriggers() { return triggers; }
+    public long getTriggersPlayed() { return played; }
+    public long getTriggersCoalesced() { return coalesced; }
+    public long getTriggersDropped() { return dropped; }
+
+    // Returns the channel number to trigger, clips are numbered in the order their lengths are given
+    public int addChannel(int maxVoices, double... clipSeconds) {
+        if (channelCount == MAX_CHANNELS) throw new IllegalStateException("Too many audio channels");
+
+        long[] clipNanos = new long[clipSeconds.length];
+        for (int i = 0; i < clipSeconds.length; i++) clipNanos[i] = (long) (clipSeconds[i] * 1_000_000_000L);
+
+        channels[channelCount] = new Channel(maxVoices, clipNanos);
+        return channelCount++;
+    }
+
+    public void trigger(int channel) {
+        channels[channel].pending++;
+        triggers++;
+    }
+
+    // Once per frame, now is in nanoseconds on the same clock every frame
+    public void flush(long now) {
+        activeVoices = 0;
+
+        for (int i = 0; i < channelCount; i++) {
+            Channel channel = channels[i];
+            int active = 0;
+            int freeVoice = -1;
+
+            for (int v = 0; v < channel.voiceEnds.length; v++) {
+                if (channel.voiceEnds[v] > now) active++;
+                else if (freeVoice < 0) freeVoice = v;
+            }
+
+            if (channel.pending > 0) {
+                coalesced += channel.pending - 1;
+                channel.pending = 0;
+
+                if (freeVoice < 0) {
+                    dropped++;
+                }
+                else {
+                    int clip = pickClip(channel);
+                    channel.voiceEnds[freeVoice] = now + channel.clipNanos[clip];
+                    active++;
+                    played++;
+                    output.play(i, clip);
+                }
+            }
+
+            activeVoices += active;
+        }
+    }
+
+    // Random but not the last one played on this channel
+    private int pickClip(Channel channel) {
+        int count = channel.clipNanos.length;
+        if (count == 1) return 0;
+
+        int clip;
+        do {
+            clip = random.nextInt(count);
+        } while (clip == channel.lastClip);
+
+        channel.lastClip = clip;
+        return clip;
+    }
+}
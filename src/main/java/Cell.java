@@ -1,15 +1,38 @@
+// Optional read-only view of one cell. Maze stores cells packed into a byte[] using the flags below.
 public class Cell {
-    boolean top = true, bottom = true, left = true, right = true;
-    boolean visited = false;
-    boolean visible = false;
-    boolean hasCoin = false;
-    boolean hasShop = false;
-    boolean hasExit = false;
+
+    // Wall bits
+    public static final int TOP = 1;
+    public static final int BOTTOM = 2;
+    public static final int LEFT = 4;
+    public static final int RIGHT = 8;
+    public static final int WALLS = TOP | BOTTOM | LEFT | RIGHT;
+
+    // Flag bits
+    public static final int VISIBLE = 16;
+    public static final int COIN = 32;
+    public static final int SHOP = 64;
+    public static final int EXIT = 128;
+
+    boolean top, bottom, left, right;
+    boolean visible;
+    boolean hasCoin;
+    boolean hasShop;
+    boolean hasExit;
 
     int row, col;
 
-    public Cell(int row, int col) {
+    public Cell(int row, int col, int flags) {
         this.row = row;
         this.col = col;
+
+        top = (flags & TOP) != 0;
+        bottom = (flags & BOTTOM) != 0;
+        left = (flags & LEFT) != 0;
+        right = (flags & RIGHT) != 0;
+        visible = (flags & VISIBLE) != 0;
+        hasCoin = (flags & COIN) != 0;
+        hasShop = (flags & SHOP) != 0;
+        hasExit = (flags & EXIT) != 0;
     }
 }
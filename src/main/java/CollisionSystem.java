@@ -1,10 +1,15 @@
 public class CollisionSystem {
 
-    private final Maze maze;
+    // Sweep step as a share of the player's size: no wall, post or cell is narrower than the player along the
+    // direction of travel, so half of it never jumps over one
+    private static final double SWEEP_STEP = 0.5;
+    private static final double CONTACT_EPSILON = 1.0 / 64;    // how close (px) the player is brought to a wall
+
+    private final MazeGrid maze;
     private final Player player;
-    private final AudioManager audio;
+    private final GameSounds audio;
 
-    public CollisionSystem(Maze maze, Player player, AudioManager audio) {
+    public CollisionSystem(MazeGrid maze, Player player, GameSounds audio) {
         this.maze = maze;
         this.player = player;
         this.audio = audio;
@@ -26,14 +31,12 @@ public class CollisionSystem {
 
         for (int row = minRow; row <= maxRow; row++) {
             for (int col = minCol; col <= maxCol; col++) {
-                Cell cell = maze.getGrid()[row][col];
-
                 double cellLeft = col * maze.getCellSize();
                 double cellRight = cellLeft + maze.getCellSize();
                 double cellTop = row * maze.getCellSize();
                 double cellBottom = cellTop + maze.getCellSize();
 
-                if (checkWallCollision(cell, top, bottom, left, right, cellTop, cellBottom, cellLeft, cellRight)) {
+                if (checkWallCollision(row, col, top, bottom, left, right, cellTop, cellBottom, cellLeft, cellRight)) {
                     return false;
                 }
 
@@ -45,16 +48,48 @@ public class CollisionSystem {
         return true;
     }
 
-    private boolean checkWallCollision(Cell cell, double top, double bottom, double left, double right,
+    // Largest fraction (0 to 1) of the move (dx, dy) the player can make. The move is walked in steps too short to
+    // cross any wall, so speed upgrades can't tunnel through one, and the first blocked step is bisected so the
+    // player stops flush against the wall instead of short of it. Cost grows with the distance covered, not speed.
+    public double sweep(double dx, double dy) {
+        double length = Math.max(Math.abs(dx), Math.abs(dy));
+        if (length == 0) return 1;
+
+        double step = Math.min(1, player.getSize() * SWEEP_STEP / length);
+        double free = 0;
+
+        while (free < 1) {
+            double next = Math.min(1, free + step);
+            if (!canMove(dx * next, dy * next)) return bisect(dx, dy, free, next, length);
+            free = next;
+        }
+        return 1;
+    }
+
+    private double bisect(double dx, double dy, double free, double blocked, double length) {
+        while ((blocked - free) * length > CONTACT_EPSILON) {
+            double middle = (free + blocked) / 2;
+
+            if (canMove(dx * middle, dy * middle)) free = middle;
+            else blocked = middle;
+        }
+
+        // Already against the wall, don't report a sub-pixel shuffle as movement
+        return free * length < CONTACT_EPSILON ? 0 : free;
+    }
+
+    private boolean checkWallCollision(int row, int col, double top, double bottom, double left, double right,
                                        double cellTop, double cellBottom, double cellLeft, double cellRight) {
 
-        if (cell.top && top < cellTop + maze.getWallThickness() - 1 && bottom > cellTop)
+        int walls = maze.getFlags(row, col);
+
+        if ((walls & Cell.TOP) != 0 && top < cellTop + maze.getWallThickness() - 1 && bottom > cellTop)
             return true;
-        if (cell.bottom && bottom > cellBottom && top < cellBottom)
+        if ((walls & Cell.BOTTOM) != 0 && bottom > cellBottom && top < cellBottom)
             return true;
-        if (cell.left && left < cellLeft + maze.getWallThickness() - 1 && right > cellLeft)
+        if ((walls & Cell.LEFT) != 0 && left < cellLeft + maze.getWallThickness() - 1 && right > cellLeft)
             return true;
-        if (cell.right && right > cellRight && left < cellRight)
+        if ((walls & Cell.RIGHT) != 0 && right > cellRight && left < cellRight)
             return true;
 
         return false;
@@ -62,13 +97,9 @@ public class CollisionSystem {
 
     private boolean checkCornerCollision(int row, int col, double top, double left, int cellSize) {
         if (row > 0 && col > 0) {
-            Cell above = maze.getGrid()[row - 1][col];
-            Cell leftCell = maze.getGrid()[row][col - 1];
-            Cell corner = maze.getGrid()[row - 1][col - 1];
-
-            boolean topWall = above.bottom;
-            boolean leftWall = leftCell.right;
-            boolean cornerWall = corner.bottom || corner.right;
+            boolean topWall = maze.hasWall(row - 1, col, Cell.BOTTOM);
+            boolean leftWall = maze.hasWall(row, col - 1, Cell.RIGHT);
+            boolean cornerWall = maze.hasWall(row - 1, col - 1, Cell.BOTTOM | Cell.RIGHT);
 
             boolean touchingCorner = top < (row * cellSize) + maze.getWallThickness() - 1 && left < (col * cellSize) + maze.getWallThickness() - 1;
 
@@ -83,10 +114,15 @@ public class CollisionSystem {
         double playerTop = player.getY();
         double playerBottom = player.getY() + player.getSize();
 
-        for (int row = 0; row < maze.getRows(); row++) {
-            for (int col = 0; col < maze.getCols(); col++) {
-                Cell cell = maze.getGrid()[row][col];
-                if (!cell.hasCoin) continue;
+        // A coin sits inside its cell, so only the (at most four) cells under the player can hold one it touches
+        int minRow = Math.max(0, (int)(playerTop / maze.getCellSize()));
+        int maxRow = Math.min(maze.getRows() - 1, (int)((playerBottom - 0.001) / maze.getCellSize()));
+        int minCol = Math.max(0, (int)(playerLeft / maze.getCellSize()));
+        int maxCol = Math.min(maze.getCols() - 1, (int)((playerRight - 0.001) / maze.getCellSize()));
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                if (!maze.hasCoin(row, col)) continue;
 
                 double coinX = col * maze.getCellSize() + (maze.getCellSize() - 8) / 2;
                 double coinY = row * maze.getCellSize() + (maze.getCellSize() - 8) / 2;
@@ -97,8 +133,7 @@ public class CollisionSystem {
 
                 boolean collision = playerRight > coinLeft && playerLeft < coinRight && playerBottom > coinTop && playerTop < coinBottom;
 
-                if (collision) {
-                    cell.hasCoin = false;
+                if (collision && maze.removeCoin(row, col)) {
                     player.addCoins(1);
                     audio.playCoinPickup();
                 }
@@ -0,0 +1,104 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Eller's algorithm: the maze is built one row at a time, only remembering which cells of the current row are
+// already connected (through rows above). Working memory is a few arrays the width of one row no matter how
+// many rows there are, so generate() can stream mazes far bigger than would fit in memory row by row.
+public class EllerGenerator implements MazeGenerator {
+
+    // Receives every finished row top to bottom. The array is reused for the next row, copy what you keep.
+    public interface RowSink {
+        void row(int row, byte[] flags);
+    }
+
+    @Override
+    public void carve(byte[] cells, int rows, int cols, SplittableRandom random) {
+        generate(rows, cols, random, (row, flags) -> System.arraycopy(flags, 0, cells, row * cols, cols));
+    }
+
+    public static void generate(int rows, int cols, SplittableRandom random, RowSink sink) {
+        // Set of each cell in the current row, renumbered to 0..cols-1 every row so all arrays stay cols wide
+        int[] set = new int[cols];
+        int[] nextSet = new int[cols];
+        int[] parent = new int[cols];       // merges within the row, union-find over set numbers
+        int[] seen = new int[cols];         // cells of each set so far, for picking one uniformly
+        int[] candidate = new int[cols];    // the cell that goes down if the set picked none
+        int[] renumber = new int[cols];
+        boolean[] setGoesDown = new boolean[cols];
+        boolean[] down = new boolean[cols];
+
+        byte[] current = new byte[cols];
+        byte[] below = new byte[cols];
+        Arrays.fill(current, (byte) Cell.WALLS);
+        Arrays.fill(renumber, -1);
+
+        for (int c = 0; c < cols; c++) set[c] = c;
+
+        for (int row = 0; row < rows; row++) {
+            boolean last = row == rows - 1;
+            for (int s = 0; s < cols; s++) parent[s] = s;
+
+            // Join neighbors of different sets at random, on the last row all of them so everything connects
+            for (int c = 0; c < cols - 1; c++) {
+                int a = find(parent, set[c]);
+                int b = find(parent, set[c + 1]);
+                if (a == b || (!last && !random.nextBoolean())) continue;
+
+                parent[b] = a;
+                current[c] = (byte) (current[c] & ~Cell.RIGHT);
+                current[c + 1] = (byte) (current[c + 1] & ~Cell.LEFT);
+            }
+
+            if (!last) {
+                Arrays.fill(below, (byte) Cell.WALLS);
+                Arrays.fill(seen, 0);
+                Arrays.fill(setGoesDown, false);
+
+                // Each cell goes down at random, every set at least once or it would be cut off
+                for (int c = 0; c < cols; c++) {
+                    int root = find(parent, set[c]);
+                    if (random.nextInt(++seen[root]) == 0) candidate[root] = c;
+
+                    down[c] = random.nextBoolean();
+                    if (down[c]) setGoesDown[root] = true;
+                }
+
+                int sets = 0;
+                for (int c = 0; c < cols; c++) {
+                    int root = find(parent, set[c]);
+                    if (!setGoesDown[root] && candidate[root] == c) down[c] = true;
+
+                    if (down[c]) {
+                        current[c] = (byte) (current[c] & ~Cell.BOTTOM);
+                        below[c] = (byte) (below[c] & ~Cell.TOP);
+
+                        if (renumber[root] < 0) renumber[root] = sets++;
+                        nextSet[c] = renumber[root];
+                    }
+                    else {
+                        nextSet[c] = sets++;    // not connected from above, a set of its own
+                    }
+                }
+                Arrays.fill(renumber, -1);
+            }
+
+            sink.row(row, current);
+
+            byte[] swapRow = current;
+            current = below;
+            below = swapRow;
+
+            int[] swapSet = set;
+            set = nextSet;
+            nextSet = swapSet;
+        }
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+}
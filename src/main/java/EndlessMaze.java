@@ -0,0 +1,309 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// A maze far bigger than memory for endless mode. The cells live in a sparse file as REGION x REGION regions,
+// each one carved the first time anything reads it. Regions are read into a fixed pool of MAX_RESIDENT buffers
+// and written back when evicted if they changed, so the resident set doesn't depend on the maze size and nothing
+// is left for the GC to release (a mapping per region would stay mapped until its buffer happened to be collected).
+// Every region is carved from its own seed and the opening in each shared border is derived from the border
+// alone, so both sides agree on it no matter which one is generated first, or whether the other one ever is.
+// There is one shop and one exit at a time, placed around the player from the seed when asked for, so placing them
+// generates nothing: their regions are carved when the player walks up to them like any other.
+public class EndlessMaze implements MazeGrid, Closeable {
+
+    static final int REGION = 64;                   // cells per region side
+    private static final int REGION_STRIDE = 1 + REGION * REGION;   // generated marker, then the cells
+    private static final int HEADER_SIZE = 4096;
+    private static final int MAGIC = 0x4D5A454E;    // "MZEN"
+    private static final int VERSION = 2;
+    private static final int MAX_RESIDENT = 64;     // regions held in memory, 256 KB of cells
+    private static final int COIN_CHANCE = 12;      // about one cell in this many has a coin
+    private static final int ITEM_DISTANCE = 16;    // cells from the player to the first exit, one more step each stage
+    private static final byte[] BLANK = new byte[REGION_STRIDE];
+
+    // Independent random streams per region
+    private static final int STREAM_CARVE = 0;
+    private static final int STREAM_EAST_BORDER = 1;
+    private static final int STREAM_SOUTH_BORDER = 2;
+
+    private final FileChannel channel;
+    private final int rows;
+    private final int cols;
+    private final int regionRows;
+    private final int regionCols;
+    private final long seed;
+    private final int cellSize = 50;
+    private final int wallThickness = 5;
+
+    private final List<MazeListener> listeners = new ArrayList<>();
+
+    // Region slots, the least recently used one is reused when all are taken (same scheme as WallLayer). The
+    // buffers are allocated once and live as long as the maze.
+    private final long[] slotRegion = new long[MAX_RESIDENT];
+    private final ByteBuffer[] slotBuffer = new ByteBuffer[MAX_RESIDENT];
+    private final boolean[] slotDirty = new boolean[MAX_RESIDENT];
+    private final long[] slotLastUsed = new long[MAX_RESIDENT];
+    private long uses = 0;
+
+    // Neighboring reads mostly land in the same region, that one skips the slot search
+    private long lastRegion = -1;
+    private int lastSlot;
+
+    // Reached exits so far, and the shop and exit of the current stage
+    private int stage = 0;
+    private Shop shop;
+    private Exit exit;
+
+    private final byte[] scratch = new byte[REGION * REGION];
+    private long regionsGenerated = 0;
+    private long regionsLoaded = 0;
+
+    // Opens (or creates) the backing file, reusing its regions if it was made for the same size and seed
+    public EndlessMaze(Path file, int rows, int cols, long seed) throws IOException {
+        this.rows = rows;
+        this.cols = cols;
+        this.seed = seed;
+        regionRows = (rows + REGION - 1) / REGION;
+        regionCols = (cols + REGION - 1) / REGION;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(24);
+        boolean reusable = channel.read(header, 0) == header.capacity()
+                && header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                && header.getInt(8) == rows && header.getInt(12) == cols && header.getLong(16) == seed;
+
+        if (!reusable) {
+            channel.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(cols).putLong(seed).flip();
+            channel.write(header, 0);
+        }
+
+        // Writing the last byte sizes the file without touching the rest, unwritten regions read back as zeros
+        long size = HEADER_SIZE + (long) regionRows * regionCols * REGION_STRIDE;
+        if (channel.size() < size) channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+
+        Arrays.fill(slotRegion, -1);
+        for (int i = 0; i < MAX_RESIDENT; i++) slotBuffer[i] = ByteBuffer.allocateDirect(REGION_STRIDE);
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getCellSize() { return cellSize; }
+    public int getWallThickness() { return wallThickness; }
+    public Shop getShop() { return shop; }
+    public Exit getExit() { return exit; }
+    public int getStage() { return stage; }
+    public long getSeed() { return seed; }
+    public long getRegionsGenerated() { return regionsGenerated; }
+    public long getRegionsLoaded() { return regionsLoaded; }
+
+    public int getResidentRegions() {
+        int count = 0;
+        for (long region : slotRegion) if (region >= 0) count++;
+        return count;
+    }
+
+    public void addListener(MazeListener listener) { listeners.add(listener); }
+
+    public int getFlags(int row, int col) { return slotBuffer[slot(row, col)].get(offset(row, col)) & 0xFF; }
+    public boolean hasWall(int row, int col, int wall) { return (getFlags(row, col) & wall) != 0; }
+    public boolean hasCoin(int row, int col) { return (getFlags(row, col) & Cell.COIN) != 0; }
+    public boolean isVisible(int row, int col) { return (getFlags(row, col) & Cell.VISIBLE) != 0; }
+
+    public void setVisible(int row, int col) {
+        int flags = getFlags(row, col);
+        if ((flags & Cell.VISIBLE) != 0) return;
+
+        put(row, col, (byte) (flags | Cell.VISIBLE));
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).onCellChanged(row, col);
+    }
+
+    public boolean removeCoin(int row, int col) {
+        int flags = getFlags(row, col);
+        if ((flags & Cell.COIN) == 0) return false;
+
+        put(row, col, (byte) (flags & ~Cell.COIN));
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).onCellChanged(row, col);
+        return true;
+    }
+
+    public void removeWall(int row, int col, int nextRow, int nextCol) {
+        int wall = nextRow < row ? Cell.TOP : nextRow > row ? Cell.BOTTOM : nextCol < col ? Cell.LEFT : Cell.RIGHT;
+        int opposite = wall == Cell.TOP ? Cell.BOTTOM : wall == Cell.BOTTOM ? Cell.TOP : wall == Cell.LEFT ? Cell.RIGHT : Cell.LEFT;
+
+        put(row, col, (byte) (getFlags(row, col) & ~wall));
+        put(nextRow, nextCol, (byte) (getFlags(nextRow, nextCol) & ~opposite));
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).onWallRemoved(row, col, nextRow, nextCol);
+    }
+
+    // Starts the next stage: a new exit ITEM_DISTANCE * stage cells (Manhattan) from the given cell, and a shop
+    // halfway there in another direction. Both only depend on the seed, the stage and the cell.
+    public void placeItems(int row, int col) {
+        stage++;
+        SplittableRandom random = new SplittableRandom(Maze.levelSeed(seed, stage));
+
+        int[] exitCell = cellAround(row, col, ITEM_DISTANCE * stage, random);
+        int[] shopCell;
+        do {
+            shopCell = cellAround(row, col, ITEM_DISTANCE * stage / 2, random);
+        } while (shopCell[0] == exitCell[0] && shopCell[1] == exitCell[1]);
+
+        exit = new Exit(exitCell[0], exitCell[1]);
+        shop = new Shop(shopCell[0], shopCell[1]);
+    }
+
+    // A random cell at the given Manhattan distance, pulled back inside the grid near its edges
+    private int[] cellAround(int row, int col, int distance, SplittableRandom random) {
+        int rowOffset = random.nextInt(-distance, distance + 1);
+        int colOffset = (distance - Math.abs(rowOffset)) * (random.nextBoolean() ? 1 : -1);
+
+        return new int[] {
+            Math.max(0, Math.min(rows - 1, row + rowOffset)),
+            Math.max(0, Math.min(cols - 1, col + colOffset))
+        };
+    }
+
+    private static int offset(int row, int col) {
+        return 1 + (row % REGION) * REGION + col % REGION;
+    }
+
+    private void put(int row, int col, byte flags) {
+        int slot = slot(row, col);
+        slotBuffer[slot].put(offset(row, col), flags);
+        slotDirty[slot] = true;
+    }
+
+    // Slot holding the region of the cell, loading it into the least recently used slot if it isn't resident
+    private int slot(int row, int col) {
+        long key = (long) (row / REGION) * regionCols + col / REGION;
+        if (key == lastRegion) return lastSlot;
+
+        uses++;
+        int lru = 0;
+
+        for (int i = 0; i < MAX_RESIDENT; i++) {
+            if (slotRegion[i] == key) {
+                slotLastUsed[i] = uses;
+                return remember(key, i);
+            }
+            if (slotLastUsed[i] < slotLastUsed[lru]) lru = i;
+        }
+
+        try {
+            writeBack(lru);
+            load(key, lru);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        slotRegion[lru] = key;
+        slotLastUsed[lru] = uses;
+
+        return remember(key, lru);
+    }
+
+    private int remember(long key, int slot) {
+        lastRegion = key;
+        lastSlot = slot;
+        return slot;
+    }
+
+    // Reads the region into the slot, a region that was never generated reads back as zeros and is carved now
+    private void load(long key, int slot) throws IOException {
+        ByteBuffer buffer = slotBuffer[slot];
+        long position = HEADER_SIZE + key * REGION_STRIDE;
+
+        // The file is sized for every region up front, so this only stops short if it was truncated underneath us
+        buffer.clear();
+        int read = 0;
+        while (buffer.hasRemaining() && read >= 0) read = channel.read(buffer, position + buffer.position());
+        if (buffer.hasRemaining()) throw new IOException("Region " + key + " is cut short");
+
+        slotDirty[slot] = buffer.get(0) == 0;
+        if (slotDirty[slot]) generate(key, buffer);
+        regionsLoaded++;
+    }
+
+    private void writeBack(int slot) throws IOException {
+        if (slotRegion[slot] < 0 || !slotDirty[slot]) return;
+
+        ByteBuffer buffer = slotBuffer[slot];
+        long position = HEADER_SIZE + slotRegion[slot] * REGION_STRIDE;
+
+        buffer.clear();
+        while (buffer.hasRemaining()) channel.write(buffer, position + buffer.position());
+        slotDirty[slot] = false;
+    }
+
+    // Carves one region into the buffer as a perfect maze of its own, then opens one cell of each border it shares
+    // with a neighbor. The opening's position comes from the border's stream, owned by the region west or north.
+    private void generate(long key, ByteBuffer region) {
+        int regionRow = (int) (key / regionCols);
+        int regionCol = (int) (key % regionCols);
+        int height = Math.min(REGION, rows - regionRow * REGION);
+        int width = Math.min(REGION, cols - regionCol * REGION);
+
+        SplittableRandom random = new SplittableRandom(streamSeed(key, STREAM_CARVE));
+
+        Arrays.fill(scratch, 0, height * width, (byte) Cell.WALLS);
+        Maze.carveBacktracker(scratch, height, width, 0, random);
+
+        if (regionCol < regionCols - 1) {
+            int row = borderOpening(key, STREAM_EAST_BORDER, height);
+            clear(row * width + width - 1, Cell.RIGHT);
+        }
+        if (regionCol > 0) {
+            int row = borderOpening(key - 1, STREAM_EAST_BORDER, height);
+            clear(row * width, Cell.LEFT);
+        }
+        if (regionRow < regionRows - 1) {
+            int col = borderOpening(key, STREAM_SOUTH_BORDER, width);
+            clear((height - 1) * width + col, Cell.BOTTOM);
+        }
+        if (regionRow > 0) {
+            int col = borderOpening(key - regionCols, STREAM_SOUTH_BORDER, width);
+            clear(col, Cell.TOP);
+        }
+
+        for (int i = 0; i < height * width; i++) {
+            if (random.nextInt(COIN_CHANCE) == 0) scratch[i] = (byte) (scratch[i] | Cell.COIN);
+        }
+
+        region.clear();
+        region.put(BLANK);
+        region.put(0, (byte) 1);    // generated
+        for (int row = 0; row < height; row++) region.put(1 + row * REGION, scratch, row * width, width);
+        regionsGenerated++;
+    }
+
+    private void clear(int index, int wall) {
+        scratch[index] = (byte) (scratch[index] & ~wall);
+    }
+
+    private int borderOpening(long key, int stream, int length) {
+        return (int) Long.remainderUnsigned(streamSeed(key, stream), length);
+    }
+
+    private long streamSeed(long key, int stream) {
+        return Maze.levelSeed(seed + key * 4 + stream, 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < MAX_RESIDENT; i++) writeBack(i);
+
+        Arrays.fill(slotRegion, -1);
+        lastRegion = -1;
+        channel.close();
+    }
+}
@@ -1,11 +1,7 @@
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.image.Image;
-
 public class Exit {
 
     public final int row;
     public final int col;
-    public final Image exitSprite;
 
     private int currentFrame = 0;
     private double frameTime = 0;
@@ -16,20 +12,9 @@ public class Exit {
     public Exit(int row, int col) {
         this.row = row;
         this.col = col;
-        this.exitSprite = new Image(getClass().getResource("/sprites/hatch.png").toExternalForm());
     }
 
-    public void draw(GraphicsContext gc, double x, double y, int cellSize) {
-        gc.drawImage(
-            exitSprite,             // spritesheet
-            47, currentFrame * 48,  // top-left corner of the frame
-            48, 48,                 // size of the frame
-            x + cellSize * 0.15,    // where to draw on canvas
-            y + cellSize * 0.15,
-            cellSize * 0.7,
-            cellSize * 0.7
-        );
-    }
+    public int getCurrentFrame() { return currentFrame; }
 
     public void updateAnimation(double dt, boolean canExit) {
         frameTime += dt;
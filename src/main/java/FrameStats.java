@@ -0,0 +1,239 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Per-frame phase timings in fixed ring buffers covering the last CAPACITY frames. Disabled (the default) every
+// call is a field check and nothing else; the buffers aren't even allocated until the first enable.
+// Collision time is measured inside the update phase, so it's a part of it, not extra to it.
+public class FrameStats {
+
+    public static final int UPDATE = 0;
+    public static final int COLLISION = 1;
+    public static final int WORLD = 2;
+    public static final int FOG = 3;
+    public static final int UI = 4;
+    public static final int FRAME = 5;      // work done in the frame, update through UI
+    public static final int INTERVAL = 6;   // time since the previous frame started
+    public static final int PHASES = 7;
+
+    public static final String[] PHASE_NAMES = { "update", "collision", "world", "fog", "ui", "frame", "interval" };
+
+    // Overlay text: a header, one line per phase, then the GC comparison
+    public static final int OVERLAY_LINES = PHASES + 2;
+
+    private static final int CAPACITY = 600;    // 10 s at 60 fps
+
+    private boolean enabled = false;
+
+    private long[][] samples;           // [phase][frame % CAPACITY], nanoseconds
+    private long[] gcCounts;            // collections that finished during each frame
+    private long[] gcMillis;
+    private long[] current = new long[PHASES];
+    private long frames = 0;
+    private long frameStart = 0;
+    private long lastFrameStart = 0;
+
+    private GarbageCollectorMXBean[] collectors;
+    private long lastGcCount = 0;
+    private long lastGcMillis = 0;
+
+    private long[] sortScratch;
+
+    public boolean isEnabled() { return enabled; }
+    public long getFrames() { return frames; }
+
+    // Frames recorded so far that are still in the buffers
+    public int size() { return (int) Math.min(frames, CAPACITY); }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled && samples == null) {
+            samples = new long[PHASES][CAPACITY];
+            gcCounts = new long[CAPACITY];
+            gcMillis = new long[CAPACITY];
+            sortScratch = new long[CAPACITY];
+            collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+        }
+        // Turning it back on starts a new session, frames from before the pause aren't mixed in
+        if (enabled && !this.enabled) {
+            frames = 0;
+            lastFrameStart = 0;
+            lastGcCount = gcCount();
+            lastGcMillis = gcMillis();
+        }
+        this.enabled = enabled;
+    }
+
+    public void toggle() { setEnabled(!enabled); }
+
+    public void beginFrame() {
+        if (!enabled) return;
+
+        frameStart = System.nanoTime();
+        Arrays.fill(current, 0);
+        current[INTERVAL] = lastFrameStart == 0 ? 0 : frameStart - lastFrameStart;
+        lastFrameStart = frameStart;
+    }
+
+    // start() then end(phase, start) around a phase, a phase timed several times in a frame adds up
+    public long start() { return enabled ? System.nanoTime() : 0; }
+
+    public void end(int phase, long start) {
+        if (enabled) current[phase] += System.nanoTime() - start;
+    }
+
+    public void endFrame() {
+        if (!enabled) return;
+
+        current[FRAME] = System.nanoTime() - frameStart;
+
+        int slot = (int) (frames % CAPACITY);
+        for (int phase = 0; phase < PHASES; phase++) samples[phase][slot] = current[phase];
+
+        long count = gcCount();
+        long millis = gcMillis();
+        gcCounts[slot] = count - lastGcCount;
+        gcMillis[slot] = millis - lastGcMillis;
+        lastGcCount = count;
+        lastGcMillis = millis;
+
+        frames++;
+    }
+
+    private long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) total += Math.max(0, collector.getCollectionCount());
+        return total;
+    }
+
+    private long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) total += Math.max(0, collector.getCollectionTime());
+        return total;
+    }
+
+    // Nearest-rank percentile (0 to 100) of a phase over the buffered frames, in nanoseconds
+    public long percentile(int phase, double percent) {
+        int size = size();
+        if (size == 0) return 0;
+
+        System.arraycopy(samples[phase], 0, sortScratch, 0, size);
+        Arrays.sort(sortScratch, 0, size);
+
+        int rank = (int) Math.ceil(percent / 100 * size);
+        return sortScratch[Math.max(0, Math.min(size - 1, rank - 1))];
+    }
+
+    public long max(int phase) {
+        long max = 0;
+        for (int i = 0; i < size(); i++) max = Math.max(max, samples[phase][i]);
+        return max;
+    }
+
+    public int framesWithGc() {
+        int count = 0;
+        for (int i = 0; i < size(); i++) if (gcCounts[i] > 0) count++;
+        return count;
+    }
+
+    // Mean frame interval of the buffered frames that did (withGc) or didn't see a collection finish
+    public double meanIntervalNanos(boolean withGc) {
+        long total = 0;
+        int count = 0;
+
+        for (int i = 0; i < size(); i++) {
+            if ((gcCounts[i] > 0) != withGc) continue;
+            total += samples[INTERVAL][i];
+            count++;
+        }
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    // Rewrites the overlay text into the given builders (OVERLAY_LINES of them). Numbers are written by hand
+    // instead of String.format, so refreshing the overlay doesn't allocate.
+    public void formatOverlay(StringBuilder[] lines) {
+        StringBuilder header = lines[0];
+        header.setLength(0);
+        pad(header, 9);
+        header.append("    p50    p95    p99    max  (ms, ").append(size()).append(" frames)");
+
+        for (int phase = 0; phase < PHASES; phase++) {
+            StringBuilder line = lines[phase + 1];
+            line.setLength(0);
+            line.append(PHASE_NAMES[phase]);
+            pad(line, 9);
+            appendMillis(line, percentile(phase, 50), 7);
+            appendMillis(line, percentile(phase, 95), 7);
+            appendMillis(line, percentile(phase, 99), 7);
+            appendMillis(line, max(phase), 7);
+        }
+
+        StringBuilder gc = lines[PHASES + 1];
+        gc.setLength(0);
+        gc.append("GC in ").append(framesWithGc()).append(" frames: ");
+        appendMillis(gc, (long) meanIntervalNanos(true), 0);
+        gc.append(" vs ");
+        appendMillis(gc, (long) meanIntervalNanos(false), 0);
+        gc.append(" ms interval");
+    }
+
+    private static void pad(StringBuilder line, int length) {
+        while (line.length() < length) line.append(' ');
+    }
+
+    // Nanoseconds as milliseconds with two decimals, right-aligned in width characters
+    static void appendMillis(StringBuilder line, long nanos, int width) {
+        long hundredths = (nanos + 5_000) / 10_000;
+        long whole = hundredths / 100;
+        int fraction = (int) (hundredths % 100);
+
+        int digits = 1;
+        for (long rest = whole / 10; rest > 0; rest /= 10) digits++;
+        for (int i = digits + 3; i < width; i++) line.append(' ');
+
+        line.append(whole).append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    // One row per buffered frame, oldest first
+    public void writeCsv(Path out) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.print("frame");
+            for (String name : PHASE_NAMES) writer.print("," + name + "_ns");
+            writer.println(",gc_count,gc_ms");
+
+            int size = size();
+            long first = frames - size;
+            for (long frame = first; frame < frames; frame++) {
+                int slot = (int) (frame % CAPACITY);
+
+                writer.print(frame);
+                for (int phase = 0; phase < PHASES; phase++) writer.print("," + samples[phase][slot]);
+                writer.println("," + gcCounts[slot] + "," + gcMillis[slot]);
+            }
+        }
+    }
+
+    // Percentile summary per phase plus the GC correlation
+    public void writeJson(Path out) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.println("{");
+            writer.printf(Locale.ROOT, "  \"frames\": %d,%n", size());
+            writer.println("  \"phases\": {");
+            for (int phase = 0; phase < PHASES; phase++) {
+                writer.printf(Locale.ROOT,
+                    "    \"%s\": {\"p50Ms\": %.3f, \"p95Ms\": %.3f, \"p99Ms\": %.3f, \"maxMs\": %.3f}%s%n",
+                    PHASE_NAMES[phase], percentile(phase, 50) / 1e6, percentile(phase, 95) / 1e6,
+                    percentile(phase, 99) / 1e6, max(phase) / 1e6, phase < PHASES - 1 ? "," : "");
+            }
+            writer.println("  },");
+            writer.printf(Locale.ROOT,
+                "  \"gc\": {\"framesWithGc\": %d, \"meanIntervalMsWithGc\": %.3f, \"meanIntervalMsWithoutGc\": %.3f}%n",
+                framesWithGc(), meanIntervalNanos(true) / 1e6, meanIntervalNanos(false) / 1e6);
+            writer.println("}");
+        }
+    }
+}
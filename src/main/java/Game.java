@@ -10,49 +10,68 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
 public class Game extends Pane {
     private Canvas canvas;
     private GraphicsContext gc;
-    private Maze maze;
-    private Player player;
-    private Coin coin;
+    private Simulation simulation;
     private Renderer renderer;
-    private CollisionSystem collision;
     private AudioManager audio;
-
-    private boolean moveUp, moveDown, moveLeft, moveRight;
+    private final AssetCache assets = new AssetCache();
+    private final FrameStats stats = new FrameStats();
 
     private boolean paused = false;
     private StackPane pauseOverlay;
+    private Button loadButton;
+
+    private static final Path SAVE_FILE = Path.of("savegame.mzs");
 
-    private boolean canExit = false;
-    private boolean inShop = false;
-    private boolean canEnterShop = false;
+    // Endless mode: cells per side of the maze, its backing file is a temporary one removed on exit
+    private static final int ENDLESS_SIZE = 1 << 18;
+    private EndlessMaze endless;
 
     private long lastTime = 0;
 
+    // Fixed-step simulation: frame time is banked in the accumulator and spent in whole ticks
+    private static final int MAX_TICKS_PER_FRAME = 8;   // catch-up cap so a long stall can't snowball
+    private int ticksPerSecond = 120;
+    private double tickSeconds = 1.0 / ticksPerSecond;
+    private double accumulator = 0;
+
+    private ReplayRecorder recorder;
+
     private StackPane shopOverlay;
     private Button buyLanternButton;
     private Button buySpeedButton;
     private Button buyPickaxeButton;
 
-    public Game(double width, double height) {
-        maze = new Maze();
-
+    public Game(double width, double height, boolean endlessMode) throws IOException {
         canvas = new Canvas(width, height);
         gc = canvas.getGraphicsContext2D();
         gc.setImageSmoothing(false);
 
-        player = new Player();
+        // Images decode in the background while the sounds load here
+        assets.preloadImages(Renderer.IMAGES);
+        audio = new AudioManager(assets);
 
-        coin = new Coin();
+        if (endlessMode) {
+            Path file = Files.createTempFile("endless", ".mze");
+            file.toFile().deleteOnExit();
+            endless = new EndlessMaze(file, ENDLESS_SIZE, ENDLESS_SIZE, new SplittableRandom().nextLong());
+            simulation = new Simulation(audio, endless);
+        }
+        else {
+            simulation = new Simulation(audio);
+            simulation.enableBackgroundGeneration();
+        }
+        simulation.setStats(stats);
 
         renderer = new Renderer(this);
 
-        audio = new AudioManager();
-
-        collision = new CollisionSystem(maze, player, audio);
-
         getChildren().add(canvas);
         initShopUI();
         initPauseUI();
@@ -61,22 +80,62 @@ public class Game extends Pane {
         widthProperty().addListener((obs, oldW, newW) -> centerCanvas());
         heightProperty().addListener((obs, oldH, newH) -> centerCanvas());
         centerCanvas();
-
-        reset();
     }
 
     public GraphicsContext getGc() { return gc; }
     public Canvas getCanvas() { return canvas; }
-    public Maze getMaze() { return maze; }
-    public Player getPlayer() { return player; }
-    public Coin getCoin() { return coin; }
+    public Simulation getSimulation() { return simulation; }
     public AudioManager getAudio() { return audio; }
-    public boolean inShop() { return inShop; }
+    public AssetCache getAssets() { return assets; }
+    public FrameStats getStats() { return stats; }
+    public boolean inShop() { return simulation.inShop(); }
+
+    public void setMoveUp(boolean value) { simulation.setMoveUp(value); }
+    public void setMoveDown(boolean value) { simulation.setMoveDown(value); }
+    public void setMoveLeft(boolean value) { simulation.setMoveLeft(value); }
+    public void setMoveRight(boolean value) { simulation.setMoveRight(value); }
+    public void usePickaxe() { simulation.usePickaxe(); }
+    public void setTickRate(int ticksPerSecond) {
+        this.ticksPerSecond = ticksPerSecond;
+        tickSeconds = 1.0 / ticksPerSecond;
+    }
 
-    public void setMoveUp(boolean value) { moveUp = value; }
-    public void setMoveDown(boolean value) { moveDown = value; }
-    public void setMoveLeft(boolean value) { moveLeft = value; }
-    public void setMoveRight(boolean value) { moveRight = value; }
+    // Has to start before the first tick, a replay always plays from the beginning of the run
+    public void startRecording(Path path) throws IOException {
+        if (simulation.isEndless()) throw new IllegalStateException("Endless runs can't be recorded");
+        if (simulation.getTick() != 0) throw new IllegalStateException("Recording must start before the game does");
+
+        recorder = new ReplayRecorder(path, simulation.getMaze().getRunSeed(), ticksPerSecond);
+        simulation.setRecorder(recorder);
+    }
+
+    public void toggleStats() { stats.toggle(); }
+
+    // Writes the buffered frames to frame-stats.csv and a percentile summary to frame-stats.json
+    public void dumpStats() {
+        if (stats.size() == 0) return;
+
+        try {
+            stats.writeCsv(Path.of("frame-stats.csv"));
+            stats.writeJson(Path.of("frame-stats.json"));
+            System.out.println("Frame stats written to " + Path.of("frame-stats.csv").toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Could not write frame stats: " + e.getMessage());
+        }
+    }
+
+    public void stopRecording() throws IOException {
+        if (recorder == null) return;
+
+        simulation.setRecorder(null);
+        recorder.close(simulation.getTick());
+        recorder = null;
+    }
+
+    // Writes back what's still in memory of an endless maze, nothing to do for levels
+    public void close() throws IOException {
+        if (endless != null) endless.close();
+    }
 
     private void initShopUI() {
         Label title = new Label("SHOP");
@@ -90,32 +149,17 @@ public class Game extends Pane {
         buyLanternButton = new Button("Lantern Upgrade (+Vision) - 1 Coin");
         buyLanternButton.setFont(Font.font("Verdana", 18));
 
-        buyLanternButton.setOnAction(e -> {
-            if (player.getCoins() >= 1) {
-                player.addCoins(-1);
-                player.upgradeLantern();
-            }
-        });
+        buyLanternButton.setOnAction(e -> simulation.buyLantern());
 
         buySpeedButton = new Button("Shoes Upgrade (+Speed) - 1 Coin");
         buySpeedButton.setFont(Font.font("Verdana", 18));
 
-        buySpeedButton.setOnAction(e -> {
-            if (player.getCoins() >= 1) {
-                player.addCoins(-1);
-                player.upgradeSpeed();
-            }
-        });
+        buySpeedButton.setOnAction(e -> simulation.buySpeed());
 
         buyPickaxeButton = new Button("Pickaxe (Knock down walls - 1 use) - 1 Coin");
         buyPickaxeButton.setFont(Font.font("Verdana", 18));
 
-        buyPickaxeButton.setOnAction(e -> {
-            if (player.getCoins() >= 1) {
-                if (player.addPickaxe() == true)
-                    player.addCoins(-1);
-            }
-        });
+        buyPickaxeButton.setOnAction(e -> simulation.buyPickaxe());
 
         VBox content = new VBox(25, title, exitHint, buyLanternButton, buySpeedButton, buyPickaxeButton);
         content.setAlignment(Pos.CENTER);
@@ -140,11 +184,21 @@ public class Game extends Pane {
         resumeButton.setFont(Font.font("Verdana", 18));
         resumeButton.setOnAction(e -> togglePause());
 
+        Button saveButton = new Button("Save Game");
+        saveButton.setFont(Font.font("Verdana", 18));
+        saveButton.setOnAction(e -> saveGame());
+
+        loadButton = new Button("Load Game");
+        loadButton.setFont(Font.font("Verdana", 18));
+        loadButton.setOnAction(e -> loadGame());
+        loadButton.setDisable(!Files.exists(SAVE_FILE) || simulation.isEndless());
+        saveButton.setDisable(simulation.isEndless());
+
         Button exitButton = new Button("Exit Game");
         exitButton.setFont(Font.font("Verdana", 18));
         exitButton.setOnAction(e -> { javafx.application.Platform.exit(); });
 
-        VBox content = new VBox(30, title, resumeButton, exitButton);
+        VBox content = new VBox(30, title, resumeButton, saveButton, loadButton, exitButton);
         content.setAlignment(Pos.CENTER);
 
         pauseOverlay = new StackPane(content);
@@ -157,13 +211,42 @@ public class Game extends Pane {
         getChildren().add(pauseOverlay);
     }
 
+    public void saveGame() {
+        try {
+            SaveGame.write(simulation, SAVE_FILE);
+            loadButton.setDisable(false);
+        } catch (IOException e) {
+            System.err.println("Could not save: " + e.getMessage());
+        }
+    }
+
+    public void loadGame() {
+        try {
+            SaveGame.read(SAVE_FILE, simulation);
+        } catch (IOException e) {
+            System.err.println("Could not load: " + e.getMessage());
+            return;
+        }
+
+        // A replay has to run from the start of the run, it can't follow a jump into a saved one
+        try {
+            stopRecording();
+        } catch (IOException e) {
+            System.err.println("Could not finish recording: " + e.getMessage());
+        }
+
+        shopOverlay.setVisible(false);
+        lastTime = 0;
+        accumulator = 0;
+    }
+
     public void togglePause() {
-        if (inShop) return;
+        if (simulation.inShop()) return;
 
         paused = !paused;
         pauseOverlay.setVisible(paused);
 
-        moveUp = moveDown = moveLeft = moveRight = false;
+        simulation.clearInput();
 
         if (paused) audio.pauseBackground();
         else audio.playBackground();
@@ -177,41 +260,21 @@ public class Game extends Pane {
     }
 
     public void interact() {
-        if (canExit) {
-            reset();
-            return;
-        }
+        boolean leavingLevel = simulation.canExit();
 
-        if (canEnterShop) toggleShop();
-    }
+        simulation.interact();
+        shopOverlay.setVisible(simulation.inShop());
 
-    public void reset() {
-
-        maze.resetMaze();
-
-        player.setX(maze.getCenter() - player.getSize() / 2);
-        player.setY(maze.getCenter() - player.getSize() / 2);
-        moveUp = moveDown = moveLeft = moveRight = false;
-        shopOverlay.setVisible(false);
-
-        player.moveDown(0); // Set sprite to down on reset
-
-        inShop = false;
-        canEnterShop = false;
-        canExit = false;
-
-        lastTime = 0;
+        // Don't count the level generation as frame time
+        if (leavingLevel) {
+            lastTime = 0;
+            accumulator = 0;
+        }
     }
 
     public void toggleShop() {
-        if (inShop) { 
-            inShop = false;
-            shopOverlay.setVisible(false);
-        }
-        else if (canEnterShop) { 
-            inShop = true;
-            shopOverlay.setVisible(true);
-        }
+        simulation.toggleShop();
+        shopOverlay.setVisible(simulation.inShop());
     }
 
     public void startGameLoop() {
@@ -228,46 +291,30 @@ public class Game extends Pane {
                 double deltaSeconds = (now - lastTime) / 1_000_000_000.0;
                 lastTime = now;
 
-                update(deltaSeconds);
-                renderer.render(canExit, inShop, canEnterShop);
-            }
-        };
-        timer.start();
-    }
-
-    private void update(double dt) {
+                stats.beginFrame();
+                long updateStart = stats.start();
 
-        if (inShop || paused) return;
+                if (!paused) {
+                    accumulator += deltaSeconds;
 
-        double distance = (player.getSpeed() + player.getSpeedLevel() * 25) * dt;
-        boolean isMoving = false;
+                    int ticks = 0;
+                    while (accumulator >= tickSeconds && ticks < MAX_TICKS_PER_FRAME) {
+                        simulation.update(tickSeconds);
+                        accumulator -= tickSeconds;
+                        ticks++;
+                    }
 
-        if (moveUp && collision.canMove(0, -distance)) {
-            player.moveUp(distance);
-            isMoving = true;
-        }
-        if (moveDown && collision.canMove(0, distance)) {
-            player.moveDown(distance);
-            isMoving = true;
-        }
-        if (moveLeft && collision.canMove(-distance, 0)) {
-            player.moveLeft(distance);
-            isMoving = true;
-        }
-        if (moveRight && collision.canMove(distance, 0)) {
-            player.moveRight(distance);
-            isMoving = true;
-        }
-
-        player.updateAnimation(dt, isMoving);
-        if (player.shouldMakeFootstep()) { audio.playFootstep(); }
-
-        collision.checkCoinCollisions();
-        coin.updateAnimation(dt);
+                    // Too far behind, drop the backlog instead of fast-forwarding
+                    if (accumulator >= tickSeconds) accumulator = 0;
+                }
 
-        canExit = collision.isPlayerOnExit();
-        maze.getExit().updateAnimation(dt, canExit);
+                stats.end(FrameStats.UPDATE, updateStart);
 
-        canEnterShop = collision.isPlayerOnShop();
+                audio.flush(now);
+                renderer.render(accumulator / tickSeconds);
+                stats.endFrame();
+            }
+        };
+        timer.start();
     }
 }
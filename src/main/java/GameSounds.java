@@ -0,0 +1,13 @@
+// Sound events raised by the simulation, AudioManager plays them and headless runs use SILENT
+public interface GameSounds {
+
+    GameSounds SILENT = new GameSounds() {
+        @Override public void playCoinPickup() {}
+        @Override public void playWallBreak() {}
+        @Override public void playFootstep() {}
+    };
+
+    void playCoinPickup();
+    void playWallBreak();
+    void playFootstep();
+}
@@ -0,0 +1,56 @@
+import java.util.SplittableRandom;
+
+// Randomized Kruskal: walls are knocked down in random order whenever the cells on either side aren't connected
+// yet, tracked with union-find (union by rank, path halving). The shuffle is done one pick at a time and stops
+// as soon as every cell is joined, so the later, useless walls are never drawn. About 13 bytes per cell.
+public class KruskalGenerator implements MazeGenerator {
+
+    @Override
+    public void carve(byte[] cells, int rows, int cols, SplittableRandom random) {
+        int total = rows * cols;
+
+        // Interior walls, 2 * cell for the one to its right and 2 * cell + 1 for the one below it
+        int[] walls = new int[2 * total];
+        int count = 0;
+        for (int i = 0; i < total; i++) {
+            if (i % cols < cols - 1) walls[count++] = 2 * i;
+            if (i + cols < total) walls[count++] = 2 * i + 1;
+        }
+
+        int[] parent = new int[total];
+        byte[] rank = new byte[total];
+        for (int i = 0; i < total; i++) parent[i] = i;
+
+        int joined = 0;
+        for (int i = 0; i < count && joined < total - 1; i++) {
+            int pick = i + random.nextInt(count - i);
+            int wall = walls[pick];
+            walls[pick] = walls[i];
+
+            int cell = wall >> 1;
+            int next = (wall & 1) == 0 ? cell + 1 : cell + cols;
+            int rootA = find(parent, cell);
+            int rootB = find(parent, next);
+            if (rootA == rootB) continue;
+
+            if (rank[rootA] < rank[rootB]) parent[rootA] = rootB;
+            else if (rank[rootA] > rank[rootB]) parent[rootB] = rootA;
+            else {
+                parent[rootB] = rootA;
+                rank[rootA]++;
+            }
+
+            Maze.openWall(cells, cols, cell, next);
+            joined++;
+        }
+    }
+
+    // Path halving: every node on the way points to its grandparent afterwards
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+}
@@ -1,4 +1,5 @@
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.geometry.Rectangle2D;
 import javafx.scene.Scene;
@@ -10,6 +11,9 @@ import javafx.stage.Screen;
 import javafx.stage.Stage;
 import javafx.scene.input.KeyCombination;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
 public class Main extends Application {
 
     private Game game;
@@ -21,9 +25,30 @@ public class Main extends Application {
         double screenWidth = screenBounds.getWidth();
         double screenHeight = screenBounds.getHeight();
 
-        game = new Game(screenWidth, screenHeight);
+        // --endless plays one maze far bigger than memory instead of levels
+        boolean endless = getParameters().getUnnamed().contains("--endless");
+        try {
+            game = new Game(screenWidth, screenHeight, endless);
+        } catch (IOException e) {
+            System.err.println("Could not create the endless maze: " + e.getMessage());
+            Platform.exit();
+            return;
+        }
         game.setVisible(false);
 
+        // --record=<file> saves the session for ReplayPlayer
+        String recordPath = getParameters().getNamed().get("record");
+        if (recordPath != null && endless) {
+            System.err.println("Endless runs can't be recorded, ignoring --record");
+        }
+        else if (recordPath != null) {
+            try {
+                game.startRecording(Paths.get(recordPath));
+            } catch (IOException e) {
+                System.err.println("Could not start recording: " + e.getMessage());
+            }
+        }
+
         StackPane root = new StackPane();
         root.setBackground(new Background(new BackgroundFill(Color.BLACK, null, null)));
 
@@ -75,7 +100,9 @@ public class Main extends Application {
                     }
                     else { game.togglePause(); }
                 }
-                case SPACE -> game.getPlayer().pickaxeWall(game.getMaze(), game.getAudio());
+                case SPACE -> game.usePickaxe();
+                case F3 -> game.toggleStats();
+                case F4 -> game.dumpStats();
                 case F11 -> stage.setFullScreen(!stage.isFullScreen());
                 default -> {}
             }
@@ -92,7 +119,18 @@ public class Main extends Application {
         });
     }
 
+    @Override
+    public void stop() throws IOException {
+        if (game == null) return;
+
+        game.stopRecording();
+        game.close();
+
+        // --asset-report lists load time and decoded size of every asset on exit
+        if (getParameters().getUnnamed().contains("--asset-report")) game.getAssets().report(System.out);
+    }
+
     public static void main(String[] args) {
-        launch();
+        launch(args);
     }
 }
@@ -1,10 +1,15 @@
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
 
-public class Maze {
+public class Maze implements MazeGrid {
 
     private int rows = 3;
     private int cols = 3;
-    private Cell[][] grid;
+    // One byte per cell (row * cols + col), see Cell for the bit layout
+    private byte[] cells;
 
     private int mazeLevel = -1;
     private int cellSize = 50;
@@ -14,116 +19,286 @@ public class Maze {
 
     private Exit exit;
 
-    private Random random = new Random();
+    // Every level is carved and populated from its own seed, derived from the run seed and the level number,
+    // so any level can be regenerated bit-identically from (level, seed)
+    private long runSeed;
+    private long seed;
+    private SplittableRandom random;
 
-    public Maze() {}
+    // Which algorithm carves each level, the backtracker on every level unless changed
+    private IntFunction<MazeGenerator> generators = level -> MazeGenerator.BACKTRACKER;
+
+    private final List<MazeListener> listeners = new ArrayList<>();
+
+    public Maze() { this(new SplittableRandom().nextLong()); }
+
+    public Maze(long runSeed) {
+        this.runSeed = runSeed;
+    }
 
     public int getRows() { return rows; }
     public int getCols() { return cols; }
-    public Cell[][] getGrid() { return grid; }
     public int getCellSize() { return cellSize; }
     public int getWallThickness() { return wallThickness; }
     public Shop getShop() { return shop; }
     public Exit getExit() { return exit; }
+    public int getLevel() { return mazeLevel; }
+    public long getSeed() { return seed; }
+    public long getRunSeed() { return runSeed; }
+    public IntFunction<MazeGenerator> getGenerators() { return generators; }
     public double getCenter() { return (rows * cellSize + wallThickness) / 2; }
 
+    public int getFlags(int row, int col) { return cells[row * cols + col] & 0xFF; }
+    public boolean hasWall(int row, int col, int wall) { return (cells[row * cols + col] & wall) != 0; }
+    public boolean hasCoin(int row, int col) { return (cells[row * cols + col] & Cell.COIN) != 0; }
+    public boolean isVisible(int row, int col) { return (cells[row * cols + col] & Cell.VISIBLE) != 0; }
+    public Cell getCell(int row, int col) { return new Cell(row, col, getFlags(row, col)); }
+
+    public void addListener(MazeListener listener) { listeners.add(listener); }
+
+    // Applies from the next resetMaze on, the same level and seed with another generator is another maze
+    public void setGenerators(IntFunction<MazeGenerator> generators) { this.generators = generators; }
+    public void setGenerator(MazeGenerator generator) { this.generators = level -> generator; }
+
+    public void setVisible(int row, int col) {
+        if (isVisible(row, col)) return;
+
+        setFlag(row * cols + col, Cell.VISIBLE);
+        // Indexed rather than for-each, this runs during play and shouldn't allocate an iterator
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).onCellChanged(row, col);
+    }
+
+    public boolean removeCoin(int row, int col) {
+        if (!hasCoin(row, col)) return false;
+
+        clearFlag(row * cols + col, Cell.COIN);
+        for (int i = 0; i < listeners.size(); i++) listeners.get(i).onCellChanged(row, col);
+        return true;
+    }
+
+    private void setFlag(int index, int flag) { cells[index] = (byte) (cells[index] | flag); }
+    private void clearFlag(int index, int flag) { cells[index] = (byte) (cells[index] & ~flag); }
+
     public void resetMaze() {
-        mazeLevel++;
+        resetMaze(mazeLevel + 1, levelSeed(runSeed, mazeLevel + 1));
+    }
+
+    public void resetMaze(int level, long seed) {
+        this.mazeLevel = level;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+
         rows = 3 + mazeLevel * 6;
         cols = 3 + mazeLevel * 6;
 
-        grid = new Cell[rows][cols];
+        cells = new byte[rows * cols];
 
         initGrid();
-        generateMazeDFS(grid[0][0]);
+        generators.apply(level).carve(cells, rows, cols, random);
+
+        placeItems(random.nextInt((rows * cols) / 6 + 1));    // Random num between 0 and max (coins)
+
+        for (MazeListener listener : listeners) listener.onMazeReset();
+    }
+
+    // Takes over a level generated or loaded elsewhere (e.g. on a background thread) in one step, keeping this
+    // maze's listeners
+    public void loadFrom(Maze generated) {
+        runSeed = generated.runSeed;
+        mazeLevel = generated.mazeLevel;
+        seed = generated.seed;
+        random = generated.random;
+        rows = generated.rows;
+        cols = generated.cols;
+        cells = generated.cells;
+        shop = generated.shop;
+        exit = generated.exit;
+
+        for (MazeListener listener : listeners) listener.onMazeReset();
+    }
+
+    // A level rebuilt from saved cells (full flag bytes, row-major) instead of being carved
+    static Maze restore(long runSeed, int level, long seed, int rows, int cols, byte[] cells) {
+        Maze maze = new Maze(runSeed);
+        maze.mazeLevel = level;
+        maze.seed = seed;
+        maze.random = new SplittableRandom(seed);
+        maze.rows = rows;
+        maze.cols = cols;
+        maze.cells = cells;
+
+        for (int i = 0; i < cells.length; i++) {
+            if ((cells[i] & Cell.SHOP) != 0) maze.shop = new Shop(i / cols, i % cols);
+            if ((cells[i] & Cell.EXIT) != 0) maze.exit = new Exit(i / cols, i % cols);
+        }
+        return maze;
+    }
 
-        generateCoins((rows * cols) / 6);
-        placeShop();
-        placeExit();
+    // SplitMix64 finalizer over (runSeed, level) so neighboring levels get unrelated seeds
+    public static long levelSeed(long runSeed, int level) {
+        long z = runSeed + (level + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
     private void initGrid() {
-        for(int row = 0; row < rows; row++) {
-            for(int col = 0; col < cols; col++) {
-                grid[row][col] = new Cell(row, col);
+        Arrays.fill(cells, (byte) Cell.WALLS);
+    }
+
+    // Iterative recursive-backtracker over a rows x cols block of cells that all start with four walls, so large
+    // levels can't overflow the thread stack. The path back to the start is kept as the direction of each step,
+    // one byte per cell. Visited cells are bits in a grid one cell wider on every side whose border starts out
+    // visited, so the four unvisited-neighbor checks are plain bit reads with no edge tests, and they form a mask
+    // that picks the step from one random draw.
+    static void carveBacktracker(byte[] cells, int rows, int cols, int start, SplittableRandom random) {
+        int width = cols + 2;
+        long[] visited = new long[(int) (((long) (rows + 2) * width + 63) >>> 6)];
+
+        for (int col = 0; col < width; col++) {
+            markVisited(visited, col);
+            markVisited(visited, (rows + 1) * width + col);
+        }
+        for (int row = 1; row <= rows; row++) {
+            markVisited(visited, row * width);
+            markVisited(visited, row * width + width - 1);
+        }
+
+        // Per direction (up, down, left, right): index step, step in the padded grid, wall crossed, wall on the far side
+        int[] step = { -cols, cols, -1, 1 };
+        int[] paddedStep = { -width, width, -1, 1 };
+        int[] wall = { Cell.TOP, Cell.BOTTOM, Cell.LEFT, Cell.RIGHT };
+        int[] opposite = { Cell.BOTTOM, Cell.TOP, Cell.RIGHT, Cell.LEFT };
+
+        byte[] path = new byte[rows * cols];
+        int depth = 0;
+
+        int index = start;
+        int padded = (start / cols + 1) * width + start % cols + 1;
+        markVisited(visited, padded);
+
+        while (true) {
+            int open = unvisited(visited, padded - width)               // Above neighbor
+                    | unvisited(visited, padded + width) << 1           // Below neighbor
+                    | unvisited(visited, padded - 1) << 2               // Left neighbor
+                    | unvisited(visited, padded + 1) << 3;              // Right neighbor
+
+            // Dead end, backtrack the way we came
+            if (open == 0) {
+                if (depth == 0) return;
+
+                int back = path[--depth];
+                index -= step[back];
+                padded -= paddedStep[back];
+                continue;
             }
+
+            // Uniform (to within 2^-32) among the unvisited neighbors, like shuffling them and taking the first
+            int choice = (int) (((random.nextInt() & 0xFFFFFFFFL) * OPEN_COUNT[open]) >>> 32);
+            int direction = OPEN_DIRECTION[open * 4 + choice];
+            int next = index + step[direction];
+
+            cells[index] = (byte) (cells[index] & ~wall[direction]);
+            cells[next] = (byte) (cells[next] & ~opposite[direction]);
+
+            path[depth++] = (byte) direction;
+            index = next;
+            padded += paddedStep[direction];
+            markVisited(visited, padded);
         }
     }
 
-    private void generateMazeDFS(Cell cell) {
-        cell.visited = true;
+    // For each mask of unvisited neighbors: how many there are, and the direction of the first, second, ... one
+    private static final byte[] OPEN_COUNT = new byte[16];
+    private static final byte[] OPEN_DIRECTION = new byte[16 * 4];
 
-        for (Cell neighbor : getShuffledNeighbors(cell)) {
-            if (!neighbor.visited) {
-                removeWall(cell, neighbor);
-                generateMazeDFS(neighbor);
+    static {
+        for (int open = 0; open < 16; open++) {
+            for (int direction = 0; direction < 4; direction++) {
+                if ((open & (1 << direction)) != 0) OPEN_DIRECTION[open * 4 + OPEN_COUNT[open]++] = (byte) direction;
             }
         }
     }
 
-    private List<Cell> getShuffledNeighbors(Cell cell) {
-        List<Cell> neighbors = new ArrayList<>();
+    private static void markVisited(long[] visited, int index) {
+        visited[index >>> 6] |= 1L << index;
+    }
 
-        if (cell.row > 0) neighbors.add(grid[cell.row - 1][cell.col]);            // Above neighbor
-        if (cell.row < rows - 1) neighbors.add(grid[cell.row + 1][cell.col]);     // Below neighbor
-        if (cell.col > 0) neighbors.add(grid[cell.row][cell.col - 1]);            // Left neighbor
-        if (cell.col < cols - 1) neighbors.add(grid[cell.row][cell.col + 1]);     // Right neighbor
+    private static int unvisited(long[] visited, int index) {
+        return (int) (~visited[index >>> 6] >>> index) & 1;
+    }
+
+    public void removeWall(int row, int col, int nextRow, int nextCol) {
+        openWall(row, col, nextRow, nextCol);
+
+        for (MazeListener listener : listeners) listener.onWallRemoved(row, col, nextRow, nextCol);
+    }
 
-        Collections.shuffle(neighbors);
-        return neighbors;
+    // Carving during generation skips the listeners, they get a single onMazeReset instead
+    private void openWall(int row, int col, int nextRow, int nextCol) {
+        openWall(cells, cols, row * cols + col, nextRow * cols + nextCol);
     }
 
-    public void removeWall(Cell current, Cell next) {
-        if (next.row < current.row) {           // Next is above
-            current.top = false;
-            next.bottom = false;
-        } else if (next.row > current.row) {    // Next is below
-            current.bottom = false;
-            next.top = false;
-        } else if (next.col < current.col) {    // Next is left
-            current.left = false;
-            next.right = false;
-        } else if (next.col > current.col) {    // Next is right
-            current.right = false;
-            next.left = false;
+    // Clears the wall between two neighboring cells on both sides
+    static void openWall(byte[] cells, int cols, int current, int next) {
+        if (next == current - cols) {           // Next is above
+            cells[current] = (byte) (cells[current] & ~Cell.TOP);
+            cells[next] = (byte) (cells[next] & ~Cell.BOTTOM);
+        } else if (next == current + cols) {    // Next is below
+            cells[current] = (byte) (cells[current] & ~Cell.BOTTOM);
+            cells[next] = (byte) (cells[next] & ~Cell.TOP);
+        } else if (next == current - 1) {       // Next is left
+            cells[current] = (byte) (cells[current] & ~Cell.LEFT);
+            cells[next] = (byte) (cells[next] & ~Cell.RIGHT);
+        } else if (next == current + 1) {       // Next is right
+            cells[current] = (byte) (cells[current] & ~Cell.RIGHT);
+            cells[next] = (byte) (cells[next] & ~Cell.LEFT);
         }
     }
 
-    private void generateCoins(int maxCoins) {
-        int numOfCoins = random.nextInt(maxCoins + 1);    // Random num between 0 and max (coins)
-        int row, col;
+    // Coins, then the shop, then the exit, each on distinct cells. Nothing is retried, so placement time is
+    // bounded and linear in the cell count no matter how densely the level is filled.
+    void placeItems(int numOfCoins) {
+        int total = rows * cols;
+        numOfCoins = Math.min(numOfCoins, total - 2);   // Always leave room for the shop and exit
 
-        for(int i = 0; i < numOfCoins; i++) {
-            do {
-                row = random.nextInt(rows);   // Random num between 0 and 14 (rows & cols)
-                col = random.nextInt(cols); 
-            } while (grid[row][col].hasCoin == true);   // No repeats/overlap
+        for (int i = 0; i < total; i++) clearFlag(i, Cell.COIN | Cell.SHOP | Cell.EXIT);
 
-            grid[row][col].hasCoin = true;
-        }
+        generateCoins(numOfCoins);
+        placeShop(total - numOfCoins);
+        placeExit(total - numOfCoins - 1);
     }
 
-    private void placeShop() {
-        int r, c;
+    // Floyd's sampling: for each of the last numOfCoins cell indices j, pick a random index up to j and take j
+    // itself if that one already has a coin. Gives a uniformly random set of cells in O(coins), with no retries.
+    private void generateCoins(int numOfCoins) {
+        int total = rows * cols;
+
+        for (int j = total - numOfCoins; j < total; j++) {
+            int i = random.nextInt(j + 1);
+            setFlag((cells[i] & Cell.COIN) == 0 ? i : j, Cell.COIN);
+        }
+    }
 
-        do {
-            r = random.nextInt(rows);
-            c = random.nextInt(cols);
-        } while (grid[r][c].hasCoin); // avoid coin overlap
+    private void placeShop(int freeCells) {
+        int index = nthFreeCell(random.nextInt(freeCells), Cell.COIN); // avoid coin overlap
 
-        shop = new Shop(r, c);
-        grid[r][c].hasShop = true;
+        shop = new Shop(index / cols, index % cols);
+        setFlag(index, Cell.SHOP);
     }
 
-    private void placeExit() {
-        int r, c;
+    private void placeExit(int freeCells) {
+        int index = nthFreeCell(random.nextInt(freeCells), Cell.COIN | Cell.SHOP);
 
-        do {
-            r = random.nextInt(rows);
-            c = random.nextInt(cols);
-        } while (grid[r][c].hasCoin || grid[r][c].hasShop);
+        exit = new Exit(index / cols, index % cols);
+        setFlag(index, Cell.EXIT);
+    }
 
-        exit = new Exit(r, c);
-        grid[r][c].hasExit = true;
+    // Index of the n-th cell (0-based) that has none of the occupied flags
+    private int nthFreeCell(int n, int occupied) {
+        for (int i = 0; i < cells.length; i++) {
+            if ((cells[i] & occupied) == 0 && n-- == 0) return i;
+        }
+        throw new IllegalStateException("No free cell left");
     }
 }
@@ -0,0 +1,96 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+// Generates many levels at once for offline tuning and validation. Every maze is built from nothing but its
+// own (level, seed) pair with its own random stream, so the result doesn't depend on which thread built it
+// or in which order: any parallelism gives bit-identical mazes.
+public class MazeBatch {
+
+    // mazes[i] is level levels[i] carved from seeds[i], built on up to parallelism threads. The run seed only
+    // matters for what Maze.resetMaze() produces after the batch level.
+    public static Maze[] generate(long runSeed, int[] levels, long[] seeds, int parallelism) {
+        return generate(runSeed, levels, seeds, parallelism, MazeGenerator.BACKTRACKER);
+    }
+
+    public static Maze[] generate(long runSeed, int[] levels, long[] seeds, int parallelism, MazeGenerator generator) {
+        if (levels.length != seeds.length) throw new IllegalArgumentException("Need one seed per level");
+
+        Maze[] mazes = new Maze[levels.length];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            pool.submit(() -> IntStream.range(0, mazes.length).parallel().forEach(i -> {
+                Maze maze = new Maze(runSeed);
+                maze.setGenerator(generator);
+                maze.resetMaze(levels[i], seeds[i]);
+                mazes[i] = maze;
+            })).join();
+        } finally {
+            pool.shutdown();
+        }
+        return mazes;
+    }
+
+    // The levels a run with this seed would play, first to first + count - 1
+    public static Maze[] generateRun(long runSeed, int firstLevel, int count, int parallelism) {
+        return generateRun(runSeed, firstLevel, count, parallelism, MazeGenerator.BACKTRACKER);
+    }
+
+    public static Maze[] generateRun(long runSeed, int firstLevel, int count, int parallelism, MazeGenerator generator) {
+        int[] levels = new int[count];
+        long[] seeds = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            levels[i] = firstLevel + i;
+            seeds[i] = Maze.levelSeed(runSeed, firstLevel + i);
+        }
+
+        return generate(runSeed, levels, seeds, parallelism, generator);
+    }
+
+    // FNV-1a over every maze's size and cells, equal checksums mean equal batches
+    public static long checksum(Maze[] mazes) {
+        long hash = 0xCBF29CE484222325L;
+
+        for (Maze maze : mazes) {
+            hash = (hash ^ maze.getRows()) * 0x100000001B3L;
+            hash = (hash ^ maze.getCols()) * 0x100000001B3L;
+
+            for (int row = 0; row < maze.getRows(); row++) {
+                for (int col = 0; col < maze.getCols(); col++) {
+                    hash = (hash ^ maze.getFlags(row, col)) * 0x100000001B3L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    // Usage: MazeBatch [--seed=N] [--first=N] [--count=N] [--threads=N] [--generator=NAME], prints throughput and a checksum
+    public static void main(String[] args) {
+        long runSeed = 1;
+        int first = 0;
+        int count = 200;
+        int threads = Runtime.getRuntime().availableProcessors();
+        MazeGenerator generator = MazeGenerator.BACKTRACKER;
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) runSeed = Long.parseLong(arg.substring(7));
+            else if (arg.startsWith("--first=")) first = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("--count=")) count = Integer.parseInt(arg.substring(8));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring(10));
+            else if (arg.startsWith("--generator=")) generator = MazeGenerator.named(arg.substring(12));
+            else throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+
+        long start = System.nanoTime();
+        Maze[] mazes = generateRun(runSeed, first, count, threads, generator);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long cells = 0;
+        for (Maze maze : mazes) cells += (long) maze.getRows() * maze.getCols();
+
+        System.out.printf("%d levels, %d cells in %.3f s on %d threads: %.0f cells/s%n",
+                count, cells, seconds, threads, cells / seconds);
+        System.out.printf("checksum %016x%n", checksum(mazes));
+    }
+}
@@ -0,0 +1,27 @@
+import java.util.SplittableRandom;
+
+// Carves a perfect maze (exactly one path between any two cells) into a rows x cols block of row-major cell
+// flags that all start with four walls. Everything random comes from the given stream, so a generator gives
+// the same maze for the same seed every time. Maze uses BACKTRACKER unless told otherwise.
+public interface MazeGenerator {
+
+    MazeGenerator BACKTRACKER = (cells, rows, cols, random) -> Maze.carveBacktracker(cells, rows, cols, 0, random);
+    MazeGenerator KRUSKAL = new KruskalGenerator();
+    MazeGenerator WILSON = new WilsonGenerator();
+    MazeGenerator ELLER = new EllerGenerator();
+    MazeGenerator SIDEWINDER = new SidewinderGenerator();
+
+    void carve(byte[] cells, int rows, int cols, SplittableRandom random);
+
+    // By name, case-insensitive, for command lines and benchmarks
+    static MazeGenerator named(String name) {
+        switch (name.toLowerCase()) {
+            case "backtracker": return BACKTRACKER;
+            case "kruskal": return KRUSKAL;
+            case "wilson": return WILSON;
+            case "eller": return ELLER;
+            case "sidewinder": return SIDEWINDER;
+            default: throw new IllegalArgumentException("Unknown maze generator: " + name);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+// Cell-level view of a maze, all that collision, visibility and rendering need. Maze keeps a whole level
+// in memory, EndlessMaze pages fixed-size regions in and out of a backing file.
+public interface MazeGrid {
+    int getRows();
+    int getCols();
+    int getCellSize();
+    int getWallThickness();
+
+    int getFlags(int row, int col);
+    boolean hasWall(int row, int col, int wall);
+    boolean hasCoin(int row, int col);
+    boolean isVisible(int row, int col);
+    void setVisible(int row, int col);
+    boolean removeCoin(int row, int col);
+    void removeWall(int row, int col, int nextRow, int nextCol);
+
+    // Null when the maze has none (an endless maze until placeItems is first called)
+    Shop getShop();
+    Exit getExit();
+
+    void addListener(MazeListener listener);
+}
@@ -0,0 +1,8 @@
+// Notified when the maze changes after generation, so cached views of it can update locally
+public interface MazeListener {
+    void onWallRemoved(int row, int col, int nextRow, int nextCol);
+    void onMazeReset();
+
+    // A flag of a single cell changed (explored, coin picked up)
+    default void onCellChanged(int row, int col) {}
+}
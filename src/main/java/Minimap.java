@@ -0,0 +1,183 @@
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+// Map of the explored part of the maze. Up to MAX_IMAGE_SIZE, every cell is a pixel at (2 * col + 1, 2 * row + 1)
+// with its walls and corners on the pixels in between. Bigger levels keep the texture at most MAX_IMAGE_SIZE
+// square by giving each pixel a block of cells: it shows a coin if any explored cell in the block has one, floor
+// if any is explored. Pixels are only rewritten for cells that changed, and the whole map is drawn with a single
+// image blit.
+public class Minimap implements MazeListener {
+
+    private static final int MAX_SIZE = 220;    // on-screen size limit in pixels
+    private static final int MAX_ZOOM = 6;
+    private static final int MAX_IMAGE_SIZE = 512;
+
+    private static final int FLOOR = 0xFF3C3C3C;
+    private static final int WALL = 0xFFBEBEBE;
+    private static final int COIN = 0xFFFFD700;
+    private static final int HIDDEN = 0x00000000;
+
+    private static final Color BACKDROP_COLOR = Color.rgb(0, 0, 0, 0.6);
+    private static final Color SHOP_COLOR = Color.rgb(0, 150, 255);
+
+    private final Maze maze;
+    private WritableImage image;
+
+    // Side of the block of cells one pixel stands for, 0 while cells get their own pixel and walls
+    private int cellsPerPixel;
+
+    public Minimap(Maze maze) {
+        this.maze = maze;
+
+        maze.addListener(this);
+    }
+
+    // Draws the map with its top-right corner at (right, top), plus markers for the player, shop and exit
+    public void draw(GraphicsContext gc, double right, double top, Player player) {
+        if (image == null) rebuild();
+
+        double zoom = Math.min(MAX_ZOOM, MAX_SIZE / image.getWidth());
+        double width = image.getWidth() * zoom;
+        double height = image.getHeight() * zoom;
+        double left = right - width;
+
+        gc.setFill(BACKDROP_COLOR);
+        gc.fillRect(left - 4, top - 4, width + 8, height + 8);
+        gc.drawImage(image, left, top, width, height);
+
+        double marker = Math.max(3, zoom);
+
+        Shop shop = maze.getShop();
+        if (shop != null && maze.isVisible(shop.row, shop.col)) {
+            gc.setFill(SHOP_COLOR);
+            drawMarker(gc, left, top, zoom, marker, shop.col + 0.5, shop.row + 0.5);
+        }
+
+        Exit exit = maze.getExit();
+        if (exit != null && maze.isVisible(exit.row, exit.col)) {
+            gc.setFill(Color.LIMEGREEN);
+            drawMarker(gc, left, top, zoom, marker, exit.col + 0.5, exit.row + 0.5);
+        }
+
+        gc.setFill(Color.RED);
+        drawMarker(gc, left, top, zoom, marker, (player.getX() + player.getSize() / 2.0) / maze.getCellSize(),
+                (player.getY() + player.getSize() / 2.0) / maze.getCellSize());
+    }
+
+    // x and y are in cells, so the middle of cell (row, col) is (col + 0.5, row + 0.5)
+    private void drawMarker(GraphicsContext gc, double left, double top, double zoom, double marker, double x, double y) {
+        double centerX = left + toPixels(x) * zoom;
+        double centerY = top + toPixels(y) * zoom;
+
+        gc.fillRect(centerX - marker / 2, centerY - marker / 2, marker, marker);
+    }
+
+    // One maze cell is two minimap pixels apart, or 1 / cellsPerPixel of one
+    private double toPixels(double cells) {
+        return cellsPerPixel == 0 ? cells * 2 + 0.5 : cells / cellsPerPixel;
+    }
+
+    // Full repaint, only on a new level: a fresh maze has nothing explored, a loaded one might
+    private void rebuild() {
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        int width;
+        int height;
+
+        if (Math.max(rows, cols) * 2 + 1 <= MAX_IMAGE_SIZE) {
+            cellsPerPixel = 0;
+            width = cols * 2 + 1;
+            height = rows * 2 + 1;
+        }
+        else {
+            cellsPerPixel = (Math.max(rows, cols) + MAX_IMAGE_SIZE - 1) / MAX_IMAGE_SIZE;
+            width = (cols + cellsPerPixel - 1) / cellsPerPixel;
+            height = (rows + cellsPerPixel - 1) / cellsPerPixel;
+        }
+
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new WritableImage(width, height);
+        }
+        else {
+            PixelWriter writer = image.getPixelWriter();
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) writer.setArgb(x, y, HIDDEN);
+            }
+        }
+
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                if (maze.isVisible(row, col)) paintCell(row, col);
+            }
+        }
+    }
+
+    private void paintCell(int row, int col) {
+        if (cellsPerPixel == 0) paintDetailed(row, col);
+        else paintBlock(row / cellsPerPixel, col / cellsPerPixel);
+    }
+
+    // A cell paints its own pixel and the eight pixels around it (walls and corners) once it is explored
+    private void paintDetailed(int row, int col) {
+        if (!maze.isVisible(row, col)) return;
+
+        PixelWriter writer = image.getPixelWriter();
+        int flags = maze.getFlags(row, col);
+        int x = col * 2 + 1;
+        int y = row * 2 + 1;
+
+        writer.setArgb(x, y, (flags & Cell.COIN) != 0 ? COIN : FLOOR);
+
+        writer.setArgb(x, y - 1, (flags & Cell.TOP) != 0 ? WALL : FLOOR);
+        writer.setArgb(x, y + 1, (flags & Cell.BOTTOM) != 0 ? WALL : FLOOR);
+        writer.setArgb(x - 1, y, (flags & Cell.LEFT) != 0 ? WALL : FLOOR);
+        writer.setArgb(x + 1, y, (flags & Cell.RIGHT) != 0 ? WALL : FLOOR);
+
+        writer.setArgb(x - 1, y - 1, WALL);
+        writer.setArgb(x + 1, y - 1, WALL);
+        writer.setArgb(x - 1, y + 1, WALL);
+        writer.setArgb(x + 1, y + 1, WALL);
+    }
+
+    // Re-reads every cell of the block behind pixel (x, y), a coin being picked up can turn it back to floor
+    private void paintBlock(int y, int x) {
+        int lastRow = Math.min(maze.getRows(), (y + 1) * cellsPerPixel);
+        int lastCol = Math.min(maze.getCols(), (x + 1) * cellsPerPixel);
+        int argb = HIDDEN;
+
+        for (int row = y * cellsPerPixel; row < lastRow && argb != COIN; row++) {
+            for (int col = x * cellsPerPixel; col < lastCol; col++) {
+                int flags = maze.getFlags(row, col);
+                if ((flags & Cell.VISIBLE) == 0) continue;
+
+                argb = FLOOR;
+                if ((flags & Cell.COIN) != 0) {
+                    argb = COIN;
+                    break;
+                }
+            }
+        }
+
+        image.getPixelWriter().setArgb(x, y, argb);
+    }
+
+    @Override
+    public void onCellChanged(int row, int col) {
+        if (image != null) paintCell(row, col);
+    }
+
+    @Override
+    public void onWallRemoved(int row, int col, int nextRow, int nextCol) {
+        if (image == null) return;
+
+        paintCell(row, col);
+        paintCell(nextRow, nextCol);
+    }
+
+    @Override
+    public void onMazeReset() {
+        if (image != null) rebuild();
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+// Breadth-first distance fields from the exit and from the shop over the maze's wall bits. Each field is built
+// the first time it's queried on a level, after that every query is an array lookup. Knocking down a wall
+// only lowers distances, so that is patched by relaxing outward from the two cells instead of a rebuild.
+public class PathfindingService implements MazeListener {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private final Maze maze;
+
+    private int[] exitDistance = new int[0];
+    private int[] shopDistance = new int[0];
+    private boolean exitBuilt = false;
+    private boolean shopBuilt = false;
+
+    // BFS work queue shared by both fields, every cell is pushed at most once per pass
+    private int[] queue = new int[0];
+
+    public PathfindingService(Maze maze) {
+        this.maze = maze;
+
+        maze.addListener(this);
+    }
+
+    public int distanceToExit(int row, int col) {
+        return exitField()[row * maze.getCols() + col];
+    }
+
+    public int distanceToShop(int row, int col) {
+        return shopField()[row * maze.getCols() + col];
+    }
+
+    // Direction of the neighboring cell one step closer to the exit, null when already there or cut off
+    public Direction nextStepTowardExit(int row, int col) {
+        return nextStep(exitField(), row, col);
+    }
+
+    public Direction nextStepTowardShop(int row, int col) {
+        return nextStep(shopField(), row, col);
+    }
+
+    private int[] exitField() {
+        if (!exitBuilt) {
+            exitDistance = build(exitDistance, maze.getExit().row, maze.getExit().col);
+            exitBuilt = true;
+        }
+        return exitDistance;
+    }
+
+    private int[] shopField() {
+        if (!shopBuilt) {
+            shopDistance = build(shopDistance, maze.getShop().row, maze.getShop().col);
+            shopBuilt = true;
+        }
+        return shopDistance;
+    }
+
+    private Direction nextStep(int[] distance, int row, int col) {
+        int cols = maze.getCols();
+        int index = row * cols + col;
+        int current = distance[index];
+
+        if (current == 0 || current == UNREACHABLE) return null;
+
+        if (!maze.hasWall(row, col, Cell.TOP) && distance[index - cols] == current - 1) return Direction.UP;
+        if (!maze.hasWall(row, col, Cell.BOTTOM) && distance[index + cols] == current - 1) return Direction.DOWN;
+        if (!maze.hasWall(row, col, Cell.LEFT) && distance[index - 1] == current - 1) return Direction.LEFT;
+        if (!maze.hasWall(row, col, Cell.RIGHT) && distance[index + 1] == current - 1) return Direction.RIGHT;
+        return null;
+    }
+
+    private int[] build(int[] distance, int row, int col) {
+        int cells = maze.getRows() * maze.getCols();
+        if (distance.length != cells) distance = new int[cells];
+        if (queue.length < cells) queue = new int[cells];
+
+        Arrays.fill(distance, UNREACHABLE);
+
+        int start = row * maze.getCols() + col;
+        distance[start] = 0;
+        queue[0] = start;
+        propagate(distance, 1);
+
+        return distance;
+    }
+
+    // Lowers the distance of every cell reachable through an open wall from the queued cells. The queue holds
+    // cells in non-decreasing distance order, so each cell gets its final value the first time it's reached.
+    private void propagate(int[] distance, int tail) {
+        int cols = maze.getCols();
+        int head = 0;
+
+        while (head < tail) {
+            int index = queue[head++];
+            int row = index / cols;
+            int col = index % cols;
+            int next = distance[index] + 1;
+            int walls = maze.getFlags(row, col);
+
+            if ((walls & Cell.TOP) == 0 && next < distance[index - cols]) { distance[index - cols] = next; queue[tail++] = index - cols; }
+            if ((walls & Cell.BOTTOM) == 0 && next < distance[index + cols]) { distance[index + cols] = next; queue[tail++] = index + cols; }
+            if ((walls & Cell.LEFT) == 0 && next < distance[index - 1]) { distance[index - 1] = next; queue[tail++] = index - 1; }
+            if ((walls & Cell.RIGHT) == 0 && next < distance[index + 1]) { distance[index + 1] = next; queue[tail++] = index + 1; }
+        }
+    }
+
+    // The new opening can only shorten paths through it, so only the far side of it needs relaxing
+    private void relax(int[] distance, int index, int nextIndex) {
+        int from = distance[index] <= distance[nextIndex] ? index : nextIndex;
+        int to = from == index ? nextIndex : index;
+
+        if (distance[from] == UNREACHABLE || distance[from] + 1 >= distance[to]) return;
+
+        distance[to] = distance[from] + 1;
+        queue[0] = to;
+        propagate(distance, 1);
+    }
+
+    @Override
+    public void onWallRemoved(int row, int col, int nextRow, int nextCol) {
+        int index = row * maze.getCols() + col;
+        int nextIndex = nextRow * maze.getCols() + nextCol;
+
+        if (exitBuilt) relax(exitDistance, index, nextIndex);
+        if (shopBuilt) relax(shopDistance, index, nextIndex);
+    }
+
+    @Override
+    public void onMazeReset() {
+        exitBuilt = false;
+        shopBuilt = false;
+    }
+}
@@ -1,12 +1,15 @@
-import javafx.scene.image.Image;
-import javafx.scene.canvas.GraphicsContext;
-
 public class Player {
 
     private double x, y;
+    private double previousX, previousY;    // position at the start of the current tick, for render interpolation
     private static final int size = 20;
     private double speed = 75;
 
+    // Upgrade caps, the shop stops selling past them and save games outside them are rejected
+    public static final int MAX_SPEED_LEVEL = 100;
+    public static final int MAX_LANTERN_LEVEL = 100;
+    public static final int MAX_PICKAXES = 1;
+
     private int coins = 0;
     private int speedLevel = 1;
     private int lanternLevel = 1;
@@ -16,85 +19,88 @@ public class Player {
     private int lastFrame = 0;
     private double frameTime = 0;
 
-    private Image upSprite;
-    private Image downSprite;
-    private Image leftSprite;
-    private Image rightSprite;
-    private Image currentSprite;
+    // Which way the player faces, Renderer picks the matching sprite sheet
+    private Direction facing = Direction.DOWN;
 
     private final double FRAME_DURATION = 0.2;
     private final int FRAME_COUNT = 6;
 
     private boolean footstep = false;
 
-    public Player() {
-        this.upSprite = loadImage("/sprites/moveUp.png");
-        this.downSprite = loadImage("/sprites/moveDown.png");
-        this.leftSprite = loadImage("/sprites/moveLeft.png");
-        this.rightSprite = loadImage("/sprites/moveRight.png");
-        this.currentSprite = downSprite;
-    }
-
-    // Helper for loading sprites above
-    private Image loadImage(String path) {
-        return new Image(getClass().getResource(path).toExternalForm());
-    }
+    public Player() {}
 
     public double getX() { return x; }
     public double getY() { return y; }
     public void setX(double x) { this.x = x; }
     public void setY(double y) { this.y = y; }
 
+    // Position blended between the last two ticks, alpha is how far into the next tick the frame is
+    public double getRenderX(double alpha) { return previousX + (x - previousX) * alpha; }
+    public double getRenderY(double alpha) { return previousY + (y - previousY) * alpha; }
+
+    public void storePreviousPosition() {
+        previousX = x;
+        previousY = y;
+    }
+
     public int getSize() { return size; }
+    public Direction getFacing() { return facing; }
+    public int getCurrentFrame() { return currentFrame; }
     public double getSpeed() { return speed; }
 
     public int getCoins() { return coins; }
     public void addCoins(int num) { coins += num; }
 
     public int getLanternLevel() { return lanternLevel; }
-    public void upgradeLantern() { lanternLevel++; }
+    public double getLanternRadius() { return 25 + lanternLevel * 12.5; } // In world pixels
+    public boolean upgradeLantern() {
+        if (lanternLevel >= MAX_LANTERN_LEVEL) return false;
+        lanternLevel++;
+        return true;
+    }
     public int getSpeedLevel() { return speedLevel; }
-    public void upgradeSpeed() { speedLevel++; }
+    public boolean upgradeSpeed() {
+        if (speedLevel >= MAX_SPEED_LEVEL) return false;
+        speedLevel++;
+        return true;
+    }
 
     public int getPickaxes() { return pickaxes; }
+
+    // Save games put the upgrades and purse back as they were
+    public void restore(int coins, int speedLevel, int lanternLevel, int pickaxes, Direction facing) {
+        this.coins = coins;
+        this.speedLevel = speedLevel;
+        this.lanternLevel = lanternLevel;
+        this.pickaxes = pickaxes;
+        this.facing = facing;
+    }
     public boolean addPickaxe() { 
-        if (pickaxes == 0) {
+        if (pickaxes < MAX_PICKAXES) {
             pickaxes++; 
             return true;
         }
         else return false;
     }
 
-    public void render(GraphicsContext gc, double offsetX, double offsetY) {
-        gc.drawImage(
-            currentSprite,          // spritesheet for that direction
-            currentFrame * 20, 0,   // top-left corner of the frame in the sheet
-            20, 20,                 // size of the frame in the sheet
-            x + offsetX,            // where to draw on canvas
-            y + offsetY,
-            size,                   // scale to player size width & height
-            size
-        );
-    }
-
     public void moveUp(double distance) {
         y -= distance;
-        currentSprite = upSprite;
+        facing = Direction.UP;
     }
 
     public void moveDown(double distance) {
         y += distance;
-        currentSprite = downSprite;
+        facing = Direction.DOWN;
     }
 
     public void moveLeft(double distance) {
         x -= distance;
-        currentSprite = leftSprite;
+        facing = Direction.LEFT;
     }
 
     public void moveRight(double distance) {
         x += distance;
-        currentSprite = rightSprite;
+        facing = Direction.RIGHT;
     }
 
     public void updateAnimation(double dt, boolean isMoving) {
@@ -140,33 +146,32 @@ public class Player {
         return false;
     }
 
-    public void pickaxeWall(Maze maze, AudioManager audio) {
+    public void pickaxeWall(MazeGrid maze, GameSounds audio) {
         if (pickaxes <= 0) return;
 
         int row = (int)((y + size / 2) / maze.getCellSize());
         int col = (int)((x + size / 2) / maze.getCellSize());
 
-        Cell[][] grid = maze.getGrid();
-        Cell current = grid[row][col];
+        int walls = maze.getFlags(row, col);
 
-        // Sprite facing direction with 2 edge cases (if actually in bounds & if wall is actually there)
-        if (currentSprite == upSprite && row > 0 && current.top) {
-            maze.removeWall(current, grid[row - 1][col]);
+        // Facing direction with 2 edge cases (if actually in bounds & if wall is actually there)
+        if (facing == Direction.UP && row > 0 && (walls & Cell.TOP) != 0) {
+            maze.removeWall(row, col, row - 1, col);
             pickaxes--;
             audio.playWallBreak();
         }
-        else if (currentSprite == downSprite && row < (maze.getRows() - 1) && current.bottom) {
-            maze.removeWall(current, grid[row + 1][col]);
+        else if (facing == Direction.DOWN && row < (maze.getRows() - 1) && (walls & Cell.BOTTOM) != 0) {
+            maze.removeWall(row, col, row + 1, col);
             pickaxes--;
             audio.playWallBreak();
         }
-        else if (currentSprite == leftSprite && col > 0 && current.left) {
-            maze.removeWall(current, grid[row][col - 1]);
+        else if (facing == Direction.LEFT && col > 0 && (walls & Cell.LEFT) != 0) {
+            maze.removeWall(row, col, row, col - 1);
             pickaxes--;
             audio.playWallBreak();
         }
-        else if (currentSprite == rightSprite && col < maze.getCols() - 1 && current.right) {
-            maze.removeWall(current, grid[row][col + 1]);
+        else if (facing == Direction.RIGHT && col < maze.getCols() - 1 && (walls & Cell.RIGHT) != 0) {
+            maze.removeWall(row, col, row, col + 1);
             pickaxes--;
             audio.playWallBreak();
         }
@@ -1,6 +1,8 @@
+import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.CycleMethod;
 import javafx.scene.paint.RadialGradient;
@@ -12,108 +14,238 @@ public class Renderer {
 
     private final GraphicsContext gc;
     private final Canvas canvas;
-    private final Maze maze;
+    private final Simulation simulation;
+    private final MazeGrid maze;    // only cell-level reads, so any grid (e.g. an EndlessMaze) can be drawn
     private final Player player;
-    private final Image floorTexture;
     private final Coin coin;
+    private final WallLayer wallLayer;
+    private final Minimap minimap;
+    private final FrameStats stats;
+
+    // Overlay text, refreshed every STATS_REFRESH frames rather than sorting the buffers every frame
+    private static final int STATS_REFRESH = 30;
+    private final StringBuilder[] statsText = new StringBuilder[FrameStats.OVERLAY_LINES];
+    private final String[] statsLines = new String[FrameStats.OVERLAY_LINES];
+    private long statsRefreshedAt = -STATS_REFRESH;
+
+    private final Image floorTexture;
+    private final Image coinSprite;
+    private final Image exitSprite;
+    private final Image[] playerSprites = new Image[Direction.values().length];
 
     private final double SCALE = 2.0;
 
-    // UI state (changes every frame via render)
-    private boolean canExit;
-    private boolean inShop;
-    private boolean canEnterShop;
+    // Colors, fonts and the coin counter text are built once, a steady frame allocates nothing
+    private static final Color SHOP_COLOR = Color.rgb(0, 150, 255); // Blue
+    private static final Color STATS_BACKGROUND = Color.rgb(0, 0, 0, 0.7);
+    private static final Font COINS_FONT = Font.font("Verdana", 20);
+    private static final Font HINT_FONT = Font.font("Verdana", 16);
+    private static final Font STATS_FONT = Font.font("Monospaced", 13);
+    private String coinsText;
+    private int coinsShown = -1;
+
+    public static final String[] IMAGES = {
+        "/textures/floor.png", "/sprites/coin.png", "/sprites/hatch.png",
+        "/sprites/moveUp.png", "/sprites/moveDown.png", "/sprites/moveLeft.png", "/sprites/moveRight.png"
+    };
+
+    // Pre-rendered fog for the current lantern radius, see drawFog
+    private WritableImage fogImage;
+    private double fogRadius;
+
+    // Cells intersecting the canvas this frame (inclusive), see updateViewport
+    private int minRow, maxRow, minCol, maxCol;
 
     public Renderer(Game game) {
         this.gc = game.getGc();
         this.canvas = game.getCanvas();
-        this.maze = game.getMaze();
-        this.player = game.getPlayer();
-        this.coin = game.getCoin();
-        this.floorTexture = new Image(getClass().getResource("/textures/floor.png").toExternalForm());
+        this.simulation = game.getSimulation();
+        this.maze = simulation.getGrid();
+        this.player = simulation.getPlayer();
+        this.coin = simulation.getCoin();
+        this.stats = game.getStats();
+        for (int i = 0; i < statsText.length; i++) statsText[i] = new StringBuilder(80);
+
+        AssetCache assets = game.getAssets();
+        this.floorTexture = assets.image("/textures/floor.png");
+        this.coinSprite = assets.image("/sprites/coin.png");
+        this.exitSprite = assets.image("/sprites/hatch.png");
+        playerSprites[Direction.UP.ordinal()] = assets.image("/sprites/moveUp.png");
+        playerSprites[Direction.DOWN.ordinal()] = assets.image("/sprites/moveDown.png");
+        playerSprites[Direction.LEFT.ordinal()] = assets.image("/sprites/moveLeft.png");
+        playerSprites[Direction.RIGHT.ordinal()] = assets.image("/sprites/moveRight.png");
+
+        this.wallLayer = new WallLayer(maze, floorTexture, SCALE);
+        // Sized to the level, an endless maze has no minimap
+        this.minimap = simulation.getMaze() != null ? new Minimap(simulation.getMaze()) : null;
     }
 
-    public void render(boolean canExit, boolean inShop, boolean canEnterShop) {
-        this.canExit = canExit;
-        this.inShop = inShop;
-        this.canEnterShop = canEnterShop;
+    // alpha is the fraction of a simulation tick elapsed since the last update, used to interpolate the player
+    public void render(double alpha) {
+        double playerX = player.getRenderX(alpha);
+        double playerY = player.getRenderY(alpha);
 
-        double offsetX = ((canvas.getWidth() / SCALE) / 2) - (player.getX() + player.getSize() / 2);
-        double offsetY = ((canvas.getHeight() / SCALE) / 2) - (player.getY() + player.getSize() / 2);
+        double offsetX = ((canvas.getWidth() / SCALE) / 2) - (playerX + player.getSize() / 2);
+        double offsetY = ((canvas.getHeight() / SCALE) / 2) - (playerY + player.getSize() / 2);
 
+        long start = stats.start();
         gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
 
         gc.save();
         gc.scale(SCALE, SCALE);
 
         drawWorld(offsetX, offsetY);
-        player.render(gc, offsetX, offsetY);
+        drawPlayer(playerX + offsetX, playerY + offsetY);
 
         gc.restore();
+        stats.end(FrameStats.WORLD, start);
+
+        start = stats.start();
+        drawFog(gc, canvas.getWidth() / 2, canvas.getHeight() / 2, player.getLanternRadius() * SCALE);
+        stats.end(FrameStats.FOG, start);
 
-        drawFog(gc, canvas.getWidth() / 2, canvas.getHeight() / 2, 50 + (player.getLanternLevel() * 25));
+        start = stats.start();
         drawUI();
+        stats.end(FrameStats.UI, start);
+
+        if (stats.isEnabled()) drawStats();
+        else statsRefreshedAt = -STATS_REFRESH;     // stats restart from frame 0 when shown again
+    }
+
+    // Phase timings over the buffered frames, top left
+    private void drawStats() {
+        if (stats.getFrames() - statsRefreshedAt >= STATS_REFRESH) {
+            statsRefreshedAt = stats.getFrames();
+
+            // fillText only takes a String, so that copy per line per refresh is all that's allocated here
+            stats.formatOverlay(statsText);
+            for (int i = 0; i < statsLines.length; i++) statsLines[i] = statsText[i].toString();
+        }
+
+        gc.save();
+        gc.setFill(STATS_BACKGROUND);
+        gc.fillRect(10, 10, 560, 20 + statsLines.length * 16);
+        gc.setFill(Color.LIME);
+        gc.setFont(STATS_FONT);
+        gc.setTextAlign(TextAlignment.LEFT);
+        for (int i = 0; i < statsLines.length; i++) gc.fillText(statsLines[i], 20, 30 + i * 16);
+        gc.restore();
+    }
+
+    // Only cells inside the visible canvas rectangle get drawn, so frame time doesn't grow with the maze
+    private void updateViewport(double offsetX, double offsetY) {
+        int cellSize = maze.getCellSize();
+        double viewWidth = canvas.getWidth() / SCALE;
+        double viewHeight = canvas.getHeight() / SCALE;
+
+        // Walls reach a wall thickness past their cell, so pad the left/top edge by that many pixels
+        minCol = Math.max(0, (int) Math.floor((-offsetX - maze.getWallThickness()) / cellSize));
+        minRow = Math.max(0, (int) Math.floor((-offsetY - maze.getWallThickness()) / cellSize));
+        maxCol = Math.min(maze.getCols() - 1, (int) Math.floor((viewWidth - offsetX) / cellSize));
+        maxRow = Math.min(maze.getRows() - 1, (int) Math.floor((viewHeight - offsetY) / cellSize));
     }
 
     private void drawWorld(double offsetX, double offsetY) {
 
-        drawCellBackground(offsetX, offsetY, 3, 3);
+        updateViewport(offsetX, offsetY);
+        wallLayer.draw(gc, offsetX, offsetY, minRow, maxRow, minCol, maxCol);
+
+        // Items are only drawn in cells the player can currently see
+        VisibilitySystem visibility = simulation.getVisibility();
+        for (int i = 0; i < visibility.getVisibleCount(); i++) {
+            int row = visibility.getVisibleRow(i);
+            int col = visibility.getVisibleCol(i);
 
-        for(int row = 0; row < maze.getRows(); row++) {
-            for(int col = 0; col < maze.getCols(); col++) {
-                Cell cell = maze.getGrid()[row][col];
+            if (maze.hasCoin(row, col)) {
                 double x = col * maze.getCellSize() + maze.getWallThickness() / 2 + offsetX;
                 double y = row * maze.getCellSize() + maze.getWallThickness() / 2 + offsetY;
 
-                // Dark gray
-                gc.setStroke(Color.rgb(20, 20, 20));
-                gc.setLineWidth(maze.getWallThickness());
-
-                if(cell.top) gc.strokeLine(x, y, x + maze.getCellSize(), y);
-                if(cell.bottom) gc.strokeLine(x, y + maze.getCellSize(), x + maze.getCellSize(), y + maze.getCellSize());
-                if(cell.left) gc.strokeLine(x, y, x, y + maze.getCellSize());
-                if(cell.right) gc.strokeLine(x + maze.getCellSize(), y, x + maze.getCellSize(), y + maze.getCellSize());
-
-                if (cell.hasCoin) {
-                    coin.render(gc, x + (maze.getCellSize() - 8) / 2, y + (maze.getCellSize() - 8) / 2);
-                }
+                drawCoin(x + (maze.getCellSize() - 8) / 2, y + (maze.getCellSize() - 8) / 2);
             }
         }
 
-        if (maze.getShop() != null) {
+        if (maze.getShop() != null && visibility.isInSight(maze.getShop().row, maze.getShop().col)) {
             double x = maze.getShop().col * maze.getCellSize() + maze.getWallThickness() / 2 + offsetX;
             double y = maze.getShop().row * maze.getCellSize() + maze.getWallThickness() / 2 + offsetY;
 
-            maze.getShop().draw(gc, x, y, maze.getCellSize());
+            drawShop(x, y, maze.getCellSize());
         }
 
-        if (maze.getExit() != null) {
+        if (maze.getExit() != null && visibility.isInSight(maze.getExit().row, maze.getExit().col)) {
             double x = maze.getExit().col * maze.getCellSize() + maze.getWallThickness() / 2 + offsetX;
             double y = maze.getExit().row * maze.getCellSize() + maze.getWallThickness() / 2 + offsetY;
 
-            maze.getExit().draw(gc, x, y, maze.getCellSize());
+            drawExit(maze.getExit(), x, y, maze.getCellSize());
         }
     }
 
-    private void drawCellBackground(double offsetX, double offsetY, int cellsWide, int cellsHigh) {
-        double tileWidth = maze.getCellSize() * cellsWide;
-        double tileHeight = maze.getCellSize() * cellsHigh;
+    private void drawPlayer(double x, double y) {
+        gc.drawImage(
+            playerSprites[player.getFacing().ordinal()],    // spritesheet for that direction
+            player.getCurrentFrame() * 20, 0,               // top-left corner of the frame in the sheet
+            20, 20,                                         // size of the frame in the sheet
+            x,                                              // where to draw on canvas
+            y,
+            player.getSize(),                               // scale to player size width & height
+            player.getSize()
+        );
+    }
 
-        for(int row = 0; row < maze.getRows(); row += cellsHigh) {
-            for(int col = 0; col < maze.getCols(); col += cellsWide) {
-                double x = col * maze.getCellSize() + maze.getWallThickness() / 2 + offsetX;
-                double y = row * maze.getCellSize() + maze.getWallThickness() / 2 + offsetY;
+    private void drawCoin(double x, double y) {
+        gc.drawImage(
+            coinSprite,
+            coin.getCurrentFrame() * 16, 0,
+            16, 16,
+            x,
+            y,
+            8, 8
+        );
+    }
 
-                // Casting to int fixes separation lines in the floor
-                gc.drawImage(floorTexture, (int)x, (int)y, (int)tileWidth, (int)tileHeight);
-            }
-        }
+    private void drawShop(double x, double y, int cellSize) {
+        gc.setFill(SHOP_COLOR);
+        gc.fillRect(x + cellSize * 0.15, y + cellSize * 0.15, cellSize * 0.7, cellSize * 0.7);
     }
 
+    private void drawExit(Exit exit, double x, double y, int cellSize) {
+        gc.drawImage(
+            exitSprite,                         // spritesheet
+            47, exit.getCurrentFrame() * 48,    // top-left corner of the frame
+            48, 48,                             // size of the frame
+            x + cellSize * 0.15,                // where to draw on canvas
+            y + cellSize * 0.15,
+            cellSize * 0.7,
+            cellSize * 0.7
+        );
+    }
+
+    // The fog only changes with the lantern, so its gradient is rendered once per radius into a 2r x 2r image.
+    // Each frame blits that around the center and fills the rest of the canvas, which is fully dark, with black.
     private void drawFog(GraphicsContext gc, double centerX, double centerY, double radius) {
+        if (fogImage == null || fogRadius != radius) {
+            fogImage = renderFog(radius);
+            fogRadius = radius;
+        }
+
+        double left = Math.round(centerX - radius);
+        double top = Math.round(centerY - radius);
+        double size = radius * 2;
+
+        gc.drawImage(fogImage, left, top);
+
+        gc.setFill(Color.BLACK);
+        gc.fillRect(0, 0, canvas.getWidth(), top);                                          // above
+        gc.fillRect(0, top + size, canvas.getWidth(), canvas.getHeight() - top - size);    // below
+        gc.fillRect(0, top, left, size);                                                   // left
+        gc.fillRect(left + size, top, canvas.getWidth() - left - size, size);              // right
+    }
+
+    private WritableImage renderFog(double radius) {
+        Canvas fog = new Canvas(radius * 2, radius * 2);
+
         RadialGradient gradient = new RadialGradient(
             0, 0,              // focusAngle, focusDistance
-            centerX, centerY,  // center X, Y
+            radius, radius,    // center X, Y
             radius,            // radius
             false,             // proportional (false because we use pixels)
             CycleMethod.NO_CYCLE,
@@ -121,30 +253,41 @@ public class Renderer {
             new Stop(1, Color.rgb(0, 0, 0, 1))  // mostly opaque at edges
         );
 
-        gc.setFill(gradient);
-        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        fog.getGraphicsContext2D().setFill(gradient);
+        fog.getGraphicsContext2D().fillRect(0, 0, fog.getWidth(), fog.getHeight());
+
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        return fog.snapshot(params, null);
     }
 
     private void drawUI() {
         gc.save();
 
+        if (player.getCoins() != coinsShown) {
+            coinsShown = player.getCoins();
+            coinsText = "COINS: " + coinsShown;
+        }
+
         gc.setFill(Color.GOLD);
-        gc.setFont(Font.font("Verdana", 20));
+        gc.setFont(COINS_FONT);
         gc.setTextAlign(TextAlignment.CENTER);
-        gc.fillText("COINS: " + player.getCoins(), canvas.getWidth() / 2, canvas.getHeight() / 2 + 350);
+        gc.fillText(coinsText, canvas.getWidth() / 2, canvas.getHeight() / 2 + 350);
 
-        if (canEnterShop && !inShop) {
+        if (simulation.canEnterShop() && !simulation.inShop()) {
             gc.setFill(Color.WHITE);
-            gc.setFont(Font.font("Verdana", 16));
+            gc.setFont(HINT_FONT);
             gc.fillText("Press E to enter shop", canvas.getWidth() / 2, canvas.getHeight() / 2 + 50);
         }
 
-        if (canExit) {
+        if (simulation.canExit()) {
             gc.setFill(Color.WHITE);
-            gc.setFont(Font.font("Verdana", 16));
+            gc.setFont(HINT_FONT);
             gc.fillText("Press E to exit maze", canvas.getWidth() / 2, canvas.getHeight() / 2 + 50);
         }
 
+        if (minimap != null) minimap.draw(gc, canvas.getWidth() - 20, 20, player);
+
         gc.restore();
     }
 }
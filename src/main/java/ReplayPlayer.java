@@ -0,0 +1,95 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Plays a ReplayRecorder file back on a headless Simulation as fast as it will go. Events are read one at a time
+// while playing, so the length of the session doesn't matter. A file cut short (crash) plays up to its last event.
+public class ReplayPlayer implements Closeable {
+
+    private final DataInputStream in;
+    private final long runSeed;
+    private final int ticksPerSecond;
+    private final Simulation simulation;
+
+    public ReplayPlayer(Path path) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+
+        if (in.readInt() != ReplayRecorder.MAGIC) throw new IOException("Not a replay file: " + path);
+        int version = in.readUnsignedByte();
+        if (version != ReplayRecorder.VERSION) throw new IOException("Unsupported replay version " + version);
+
+        runSeed = in.readLong();
+        ticksPerSecond = in.readInt();
+        simulation = new Simulation(GameSounds.SILENT, runSeed);
+    }
+
+    public long getRunSeed() { return runSeed; }
+    public int getTicksPerSecond() { return ticksPerSecond; }
+    public Simulation getSimulation() { return simulation; }
+
+    // Runs the whole replay, returns the number of ticks simulated
+    public long play() throws IOException {
+        double dt = 1.0 / ticksPerSecond;
+        long tick = 0;
+
+        while (true) {
+            long delta;
+            int input;
+            try {
+                delta = readVarLong();
+                input = (int) readVarLong();
+            } catch (EOFException e) {
+                break;
+            }
+
+            tick += delta;
+            while (simulation.getTick() < tick) simulation.update(dt);
+
+            if (input == ReplayRecorder.END) break;
+            simulation.applyInput(input);
+        }
+        return simulation.getTick();
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Usage: ReplayPlayer <file>, prints playback speed and where the session ended up
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayPlayer <replay file>");
+            System.exit(1);
+        }
+
+        try (ReplayPlayer player = new ReplayPlayer(Paths.get(args[0]))) {
+            long start = System.nanoTime();
+            long ticks = player.play();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Simulation simulation = player.getSimulation();
+            System.out.printf("%d ticks in %.3f s (%.0f ticks/s)%n", ticks, seconds, ticks / seconds);
+            System.out.printf("seed %d, level %d, coins %d, position (%.2f, %.2f)%n",
+                    player.getRunSeed(), simulation.getMaze().getLevel(), simulation.getPlayer().getCoins(),
+                    simulation.getPlayer().getX(), simulation.getPlayer().getY());
+        }
+    }
+}
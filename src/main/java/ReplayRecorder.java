@@ -0,0 +1,72 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Writes a session as it's played: a header with the run seed and tick rate, then one event per input change,
+// each a varint tick delta and a varint input mask (Simulation.INPUT_*). Nothing is held in memory, so the
+// file can be read back while it's still growing and a crash loses at most the buffered tail.
+public class ReplayRecorder implements Closeable {
+
+    static final int MAGIC = 0x4D5A5250;   // "MZRP"
+    static final int VERSION = 2;
+    static final int END = 1 << 16;         // mask of the closing event, above every input bit
+
+    private final DataOutputStream out;
+    private long lastTick = 0;
+    private int lastInput = 0;
+    private boolean failed = false;
+
+    public ReplayRecorder(Path path, long runSeed, int ticksPerSecond) throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(runSeed);
+        out.writeInt(ticksPerSecond);
+    }
+
+    // Input applied before the given tick runs. Key repeats re-send held keys, those are dropped here.
+    public void record(long tick, int input) {
+        if (input == lastInput && (input & ~Simulation.INPUT_HELD) == 0) return;
+
+        write(tick, input);
+        lastInput = input & Simulation.INPUT_HELD;
+    }
+
+    private void write(long tick, int input) {
+        if (failed) return;
+
+        try {
+            writeVarLong(tick - lastTick);
+            writeVarLong(input);
+            lastTick = tick;
+        } catch (IOException e) {
+            failed = true;
+            System.err.println("Replay recording stopped: " + e.getMessage());
+        }
+    }
+
+    // Marks how many ticks the session ran in total, so playback stops exactly where recording did
+    public void close(long finalTick) throws IOException {
+        write(finalTick, END);
+        failed = true;
+        out.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(lastTick);
+    }
+
+    // 7 bits per byte, high bit set on every byte but the last
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+// Whole-run save files: a fixed header with the level, player and upgrades, then the cells at 4 bits each.
+// Only a cell's RIGHT and BOTTOM walls are stored, its TOP and LEFT are the neighbors' BOTTOM and RIGHT, and
+// the outer border can't be broken so it's always closed. Walls are saved rather than regenerated from the
+// seed so a save stays valid if the generator changes. Shop and exit go in the header as positions.
+public class SaveGame {
+
+    static final int MAGIC = 0x4D5A5356;   // "MZSV"
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 8 + 4 + 4 + 4 * 4 + 8 + 8 + 4 * 4 + 1 + 8;
+
+    // Packed cell bits
+    private static final int RIGHT = 1;
+    private static final int BOTTOM = 2;
+    private static final int COIN = 4;
+    private static final int VISIBLE = 8;
+
+    public static void write(Simulation simulation, Path path) throws IOException {
+        Maze maze = simulation.getMaze();
+        if (maze == null) throw new IOException("Endless runs can't be saved");
+
+        Player player = simulation.getPlayer();
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + packedSize(rows, cols));
+
+        buffer.putInt(MAGIC).put((byte) VERSION);
+        buffer.putLong(maze.getRunSeed()).putInt(maze.getLevel()).putLong(maze.getSeed());
+        buffer.putInt(rows).putInt(cols);
+        buffer.putInt(maze.getShop().row).putInt(maze.getShop().col);
+        buffer.putInt(maze.getExit().row).putInt(maze.getExit().col);
+
+        buffer.putDouble(player.getX()).putDouble(player.getY());
+        buffer.putInt(player.getCoins()).putInt(player.getSpeedLevel()).putInt(player.getLanternLevel()).putInt(player.getPickaxes());
+        buffer.put((byte) player.getFacing().ordinal());
+        buffer.putLong(simulation.getTick());
+
+        // Two cells per byte, the even cell in the low nibble
+        int packed = 0;
+        int index = 0;
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++, index++) {
+                packed |= pack(maze.getFlags(row, col)) << ((index & 1) * 4);
+
+                if ((index & 1) == 1) {
+                    buffer.put((byte) packed);
+                    packed = 0;
+                }
+            }
+        }
+        if ((index & 1) == 1) buffer.put((byte) packed);
+
+        buffer.flip();
+
+        // Written next to the target and moved over it, a crash mid-save leaves the old save intact
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+            channel.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void read(Path path, Simulation simulation) throws IOException {
+        if (simulation.isEndless()) throw new IOException("A save can't be loaded into an endless run");
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) throw new IOException("Not a save file: " + path);
+
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+            buffer.flip();
+        }
+
+        if (buffer.getInt() != MAGIC) throw new IOException("Not a save file: " + path);
+        int version = buffer.get() & 0xFF;
+        if (version != VERSION) throw new IOException("Unsupported save version " + version);
+
+        long runSeed = buffer.getLong();
+        int level = buffer.getInt();
+        long seed = buffer.getLong();
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        int shopRow = buffer.getInt();
+        int shopCol = buffer.getInt();
+        int exitRow = buffer.getInt();
+        int exitCol = buffer.getInt();
+
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        int coins = buffer.getInt();
+        int speedLevel = buffer.getInt();
+        int lanternLevel = buffer.getInt();
+        int pickaxes = buffer.getInt();
+        int facing = buffer.get();
+        long tick = buffer.getLong();
+
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE || buffer.remaining() != packedSize(rows, cols)
+                || !inside(shopRow, shopCol, rows, cols) || !inside(exitRow, exitCol, rows, cols)
+                || (shopRow == exitRow && shopCol == exitCol) || facing < 0 || facing >= Direction.values().length
+                || coins < 0 || speedLevel < 1 || speedLevel > Player.MAX_SPEED_LEVEL
+                || lanternLevel < 1 || lanternLevel > Player.MAX_LANTERN_LEVEL
+                || pickaxes < 0 || pickaxes > Player.MAX_PICKAXES) {
+            throw new IOException("Corrupt save file: " + path);
+        }
+
+        byte[] cells = new byte[rows * cols];
+        int packed = 0;
+        for (int index = 0; index < cells.length; index++) {
+            if ((index & 1) == 0) packed = buffer.get() & 0xFF;
+            cells[index] = (byte) unpack(packed >> ((index & 1) * 4));
+        }
+
+        // TOP and LEFT come from the neighbors. The border is always walled, also when a damaged or edited file
+        // says otherwise: an opening there would let the player walk off the grid.
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                int index = row * cols + col;
+                if (row == 0 || (cells[index - cols] & Cell.BOTTOM) != 0) cells[index] = (byte) (cells[index] | Cell.TOP);
+                if (col == 0 || (cells[index - 1] & Cell.RIGHT) != 0) cells[index] = (byte) (cells[index] | Cell.LEFT);
+                if (row == rows - 1) cells[index] = (byte) (cells[index] | Cell.BOTTOM);
+                if (col == cols - 1) cells[index] = (byte) (cells[index] | Cell.RIGHT);
+            }
+        }
+
+        cells[shopRow * cols + shopCol] = (byte) (cells[shopRow * cols + shopCol] | Cell.SHOP);
+        cells[exitRow * cols + exitCol] = (byte) (cells[exitRow * cols + exitCol] | Cell.EXIT);
+
+        Maze maze = Maze.restore(runSeed, level, seed, rows, cols, cells);
+        Player player = simulation.getPlayer();
+
+        // The whole player box has to be on the grid, NaN and infinities fail these too
+        if (!(x >= 0 && y >= 0 && x + player.getSize() <= (double) cols * maze.getCellSize()
+                && y + player.getSize() <= (double) rows * maze.getCellSize())) {
+            throw new IOException("Corrupt save file: " + path);
+        }
+
+        player.setX(x);
+        player.setY(y);
+        player.restore(coins, speedLevel, lanternLevel, pickaxes, Direction.values()[facing]);
+
+        simulation.restore(maze, tick);
+    }
+
+    private static boolean inside(int row, int col, int rows, int cols) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    private static int packedSize(int rows, int cols) {
+        return (int) (((long) rows * cols + 1) / 2);
+    }
+
+    private static int pack(int flags) {
+        return ((flags & Cell.RIGHT) != 0 ? RIGHT : 0) | ((flags & Cell.BOTTOM) != 0 ? BOTTOM : 0)
+                | ((flags & Cell.COIN) != 0 ? COIN : 0) | ((flags & Cell.VISIBLE) != 0 ? VISIBLE : 0);
+    }
+
+    private static int unpack(int bits) {
+        return ((bits & RIGHT) != 0 ? Cell.RIGHT : 0) | ((bits & BOTTOM) != 0 ? Cell.BOTTOM : 0)
+                | ((bits & COIN) != 0 ? Cell.COIN : 0) | ((bits & VISIBLE) != 0 ? Cell.VISIBLE : 0);
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// Sidewinder: every row after the first is cut into random horizontal runs and each run gets one opening
+// upward. Rows don't depend on each other, so each one draws from its own stream split off by row number and
+// large mazes are carved on all cores, with the same result as carving them one row after another. Biased
+// (the top row is always one corridor) but needs no memory beyond the cells.
+public class SidewinderGenerator implements MazeGenerator {
+
+    private static final int PARALLEL_THRESHOLD = 1 << 16;     // cells, below this the fork/join overhead dominates
+
+    @Override
+    public void carve(byte[] cells, int rows, int cols, SplittableRandom random) {
+        long rowSeed = random.nextLong();
+        boolean parallel = (long) rows * cols >= PARALLEL_THRESHOLD;
+
+        // A row only ever writes its own bytes: the openings upward clear TOP here, and the matching BOTTOM
+        // bits of the row above are filled in afterwards, so no two rows touch the same byte at the same time
+        range(rows, parallel).forEach(row -> carveRow(cells, cols, row, rowSeed));
+        range(rows - 1, parallel).forEach(row -> {
+            for (int i = row * cols; i < (row + 1) * cols; i++) {
+                if ((cells[i + cols] & Cell.TOP) == 0) cells[i] = (byte) (cells[i] & ~Cell.BOTTOM);
+            }
+        });
+    }
+
+    private static IntStream range(int count, boolean parallel) {
+        IntStream rows = IntStream.range(0, count);
+        return parallel ? rows.parallel() : rows;
+    }
+
+    private static void carveRow(byte[] cells, int cols, int row, long rowSeed) {
+        int first = row * cols;
+
+        // Nothing above to connect to, the top row is one long corridor
+        if (row == 0) {
+            for (int c = 0; c < cols - 1; c++) openRight(cells, first + c);
+            return;
+        }
+
+        SplittableRandom random = new SplittableRandom(Maze.levelSeed(rowSeed, row));
+        int runStart = 0;
+
+        for (int c = 0; c < cols; c++) {
+            if (c < cols - 1 && random.nextBoolean()) {
+                openRight(cells, first + c);
+                continue;
+            }
+
+            // Run ends here, one of its cells opens upward
+            int up = first + runStart + random.nextInt(c - runStart + 1);
+            cells[up] = (byte) (cells[up] & ~Cell.TOP);
+            runStart = c + 1;
+        }
+    }
+
+    private static void openRight(byte[] cells, int index) {
+        cells[index] = (byte) (cells[index] & ~Cell.RIGHT);
+        cells[index + 1] = (byte) (cells[index + 1] & ~Cell.LEFT);
+    }
+}
@@ -0,0 +1,350 @@
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+// Game logic without any JavaFX: maze, player movement, collisions, shop economy and level progression.
+// Game wraps this with the canvas, overlays and audio; headless runs can drive it directly.
+// In endless mode the player walks an EndlessMaze instead of levels: there is no pathfinding or level
+// pre-generation, and reaching the exit places a new shop and exit farther out instead of a new level.
+public class Simulation {
+
+    // Input bits: held movement keys and one-shot actions, as recorded in replays
+    public static final int INPUT_UP = 1;
+    public static final int INPUT_DOWN = 2;
+    public static final int INPUT_LEFT = 4;
+    public static final int INPUT_RIGHT = 8;
+    public static final int INPUT_INTERACT = 16;
+    public static final int INPUT_TOGGLE_SHOP = 32;
+    public static final int INPUT_USE_PICKAXE = 64;
+    public static final int INPUT_BUY_LANTERN = 128;
+    public static final int INPUT_BUY_SPEED = 256;
+    public static final int INPUT_BUY_PICKAXE = 512;
+    public static final int INPUT_HELD = INPUT_UP | INPUT_DOWN | INPUT_LEFT | INPUT_RIGHT;
+
+    private final MazeGrid grid;        // what the player walks through: the level, or the endless maze
+    private final Maze maze;            // null in endless mode
+    private final EndlessMaze endless;  // null unless in endless mode
+    private final Player player;
+    private final Coin coin;
+    private final CollisionSystem collision;
+    private final VisibilitySystem visibility;
+    private final PathfindingService pathfinding;
+    private final GameSounds sounds;
+
+    private boolean moveUp, moveDown, moveLeft, moveRight;
+
+    private boolean canExit = false;
+    private boolean inShop = false;
+    private boolean canEnterShop = false;
+
+    // Number of update() calls so far, replays line inputs up with it
+    private long tick = 0;
+    private ReplayRecorder recorder;
+
+    private FrameStats stats = new FrameStats();    // disabled unless a Game hands over its own
+
+    // Optional: the next level is carved on a background thread while this one is played
+    private ExecutorService levelGenerator;
+    private Future<Maze> nextMaze;
+
+    public Simulation(GameSounds sounds) {
+        this(sounds, new Maze());
+    }
+
+    // Same run seed, same levels
+    public Simulation(GameSounds sounds, long runSeed) {
+        this(sounds, new Maze(runSeed));
+    }
+
+    private Simulation(GameSounds sounds, Maze maze) {
+        this(sounds, maze, maze, null);
+    }
+
+    // Endless mode, starting in the middle of the maze
+    public Simulation(GameSounds sounds, EndlessMaze endless) {
+        this(sounds, endless, null, endless);
+    }
+
+    private Simulation(GameSounds sounds, MazeGrid grid, Maze maze, EndlessMaze endless) {
+        this.sounds = sounds;
+        this.grid = grid;
+        this.maze = maze;
+        this.endless = endless;
+
+        player = new Player();
+        coin = new Coin();
+        collision = new CollisionSystem(grid, player, sounds);
+        visibility = new VisibilitySystem(grid, player);
+        pathfinding = maze != null ? new PathfindingService(maze) : null;
+
+        if (endless != null) {
+            double inset = (grid.getCellSize() - player.getSize()) / 2.0;
+            player.setX(grid.getCols() / 2 * grid.getCellSize() + inset);
+            player.setY(grid.getRows() / 2 * grid.getCellSize() + inset);
+        }
+
+        nextLevel();
+    }
+
+    public MazeGrid getGrid() { return grid; }
+    public Maze getMaze() { return maze; }
+    public Player getPlayer() { return player; }
+    public Coin getCoin() { return coin; }
+    public VisibilitySystem getVisibility() { return visibility; }
+    public PathfindingService getPathfinding() { return pathfinding; }     // null in endless mode
+    public boolean isEndless() { return endless != null; }
+    public boolean canExit() { return canExit; }
+    public boolean inShop() { return inShop; }
+    public boolean canEnterShop() { return canEnterShop; }
+
+    public long getTick() { return tick; }
+    public void setStats(FrameStats stats) { this.stats = stats; }
+
+    public void setMoveUp(boolean value) { moveUp = value; record(0); }
+    public void setMoveDown(boolean value) { moveDown = value; record(0); }
+    public void setMoveLeft(boolean value) { moveLeft = value; record(0); }
+    public void setMoveRight(boolean value) { moveRight = value; record(0); }
+    public void clearInput() { resetInput(); record(0); }
+
+    private void resetInput() { moveUp = moveDown = moveLeft = moveRight = false; }
+
+    // Every input from here on goes to the recorder, tagged with the tick it happened before
+    public void setRecorder(ReplayRecorder recorder) { this.recorder = recorder; }
+
+    private int heldInput() {
+        return (moveUp ? INPUT_UP : 0) | (moveDown ? INPUT_DOWN : 0) | (moveLeft ? INPUT_LEFT : 0) | (moveRight ? INPUT_RIGHT : 0);
+    }
+
+    private void record(int action) {
+        if (recorder != null) recorder.record(tick, heldInput() | action);
+    }
+
+    // Replays feed recorded input back through here
+    public void applyInput(int input) {
+        moveUp = (input & INPUT_UP) != 0;
+        moveDown = (input & INPUT_DOWN) != 0;
+        moveLeft = (input & INPUT_LEFT) != 0;
+        moveRight = (input & INPUT_RIGHT) != 0;
+
+        if ((input & INPUT_INTERACT) != 0) interact();
+        if ((input & INPUT_TOGGLE_SHOP) != 0) toggleShop();
+        if ((input & INPUT_USE_PICKAXE) != 0) usePickaxe();
+        if ((input & INPUT_BUY_LANTERN) != 0) buyLantern();
+        if ((input & INPUT_BUY_SPEED) != 0) buySpeed();
+        if ((input & INPUT_BUY_PICKAXE) != 0) buyPickaxe();
+    }
+
+    public void enableBackgroundGeneration() {
+        if (levelGenerator != null || maze == null) return;
+
+        levelGenerator = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "level-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pregenerateNextLevel();
+    }
+
+    private void pregenerateNextLevel() {
+        long runSeed = maze.getRunSeed();
+        int level = maze.getLevel() + 1;
+        long seed = Maze.levelSeed(runSeed, level);
+        IntFunction<MazeGenerator> generators = maze.getGenerators();
+
+        nextMaze = levelGenerator.submit(() -> {
+            Maze next = new Maze(runSeed);
+            next.setGenerators(generators);
+            next.resetMaze(level, seed);
+            return next;
+        });
+    }
+
+    // The pre-generated level if there is one for the level after this, otherwise null
+    private Maze takePregeneratedLevel() {
+        if (nextMaze == null) return null;
+
+        try {
+            // Still being carved: waiting on it is never slower than starting over
+            Maze next = nextMaze.get();
+            boolean current = next.getLevel() == maze.getLevel() + 1 && next.getRunSeed() == maze.getRunSeed()
+                    && next.getGenerators() == maze.getGenerators();
+            return current ? next : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } finally {
+            nextMaze = null;
+        }
+    }
+
+    // Swaps in a saved level, called once SaveGame has put the player back where it was
+    public void restore(Maze saved, long tick) {
+        if (maze == null) throw new IllegalStateException("An endless run can't load a saved level");
+        if (nextMaze != null) nextMaze.cancel(false);
+        nextMaze = null;
+
+        maze.loadFrom(saved);
+        if (levelGenerator != null) pregenerateNextLevel();
+
+        this.tick = tick;
+        player.storePreviousPosition();
+        resetInput();
+
+        inShop = false;
+        canEnterShop = false;
+        canExit = false;
+
+        visibility.update();
+    }
+
+    public void nextLevel() {
+        if (endless != null) {
+            // No levels to switch to, the run carries on from here toward the next exit
+            int row = (int) ((player.getY() + player.getSize() / 2) / grid.getCellSize());
+            int col = (int) ((player.getX() + player.getSize() / 2) / grid.getCellSize());
+            endless.placeItems(row, col);
+        }
+        else {
+            Maze next = takePregeneratedLevel();
+            if (next != null) maze.loadFrom(next);
+            else maze.resetMaze();
+
+            if (levelGenerator != null) pregenerateNextLevel();
+
+            player.setX(maze.getCenter() - player.getSize() / 2);
+            player.setY(maze.getCenter() - player.getSize() / 2);
+        }
+
+        player.storePreviousPosition(); // Don't interpolate from the old level's position
+        resetInput();
+
+        player.moveDown(0); // Set sprite to down on reset
+
+        inShop = false;
+        canEnterShop = false;
+        canExit = false;
+
+        visibility.update();
+    }
+
+    public void interact() {
+        record(INPUT_INTERACT);
+
+        if (canExit) {
+            nextLevel();
+            return;
+        }
+
+        if (canEnterShop) switchShop();
+    }
+
+    public void toggleShop() {
+        record(INPUT_TOGGLE_SHOP);
+
+        switchShop();
+    }
+
+    // Not recorded: interact() gets here through its own event, a second one would toggle back on playback
+    private void switchShop() {
+        if (inShop) inShop = false;
+        else if (canEnterShop) inShop = true;
+    }
+
+    public void buyLantern() {
+        record(INPUT_BUY_LANTERN);
+
+        if (player.getCoins() >= 1) {
+            if (player.upgradeLantern())
+                player.addCoins(-1);
+        }
+    }
+
+    public void buySpeed() {
+        record(INPUT_BUY_SPEED);
+
+        if (player.getCoins() >= 1) {
+            if (player.upgradeSpeed())
+                player.addCoins(-1);
+        }
+    }
+
+    public void buyPickaxe() {
+        record(INPUT_BUY_PICKAXE);
+
+        if (player.getCoins() >= 1) {
+            if (player.addPickaxe() == true)
+                player.addCoins(-1);
+        }
+    }
+
+    public void usePickaxe() {
+        record(INPUT_USE_PICKAXE);
+
+        player.pickaxeWall(grid, sounds);
+    }
+
+    public void update(double dt) {
+
+        tick++;
+        player.storePreviousPosition();
+
+        if (inShop) return;
+
+        double distance = (player.getSpeed() + player.getSpeedLevel() * 25) * dt;
+        boolean isMoving = false;
+
+        long collisionStart = stats.start();
+
+        // Each axis moves as far as the walls allow, so pushing diagonally into a wall slides along it
+        if (moveUp) {
+            double allowed = collision.sweep(0, -distance) * distance;
+            if (allowed > 0) {
+                player.moveUp(allowed);
+                isMoving = true;
+            }
+        }
+        if (moveDown) {
+            double allowed = collision.sweep(0, distance) * distance;
+            if (allowed > 0) {
+                player.moveDown(allowed);
+                isMoving = true;
+            }
+        }
+        if (moveLeft) {
+            double allowed = collision.sweep(-distance, 0) * distance;
+            if (allowed > 0) {
+                player.moveLeft(allowed);
+                isMoving = true;
+            }
+        }
+        if (moveRight) {
+            double allowed = collision.sweep(distance, 0) * distance;
+            if (allowed > 0) {
+                player.moveRight(allowed);
+                isMoving = true;
+            }
+        }
+
+        stats.end(FrameStats.COLLISION, collisionStart);
+
+        visibility.update();
+
+        player.updateAnimation(dt, isMoving);
+        if (player.shouldMakeFootstep()) { sounds.playFootstep(); }
+
+        collisionStart = stats.start();
+        collision.checkCoinCollisions();
+        stats.end(FrameStats.COLLISION, collisionStart);
+
+        coin.updateAnimation(dt);
+
+        canExit = collision.isPlayerOnExit();
+        if (grid.getExit() != null) grid.getExit().updateAnimation(dt, canExit);
+
+        canEnterShop = collision.isPlayerOnShop();
+    }
+}
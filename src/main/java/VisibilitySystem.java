@@ -0,0 +1,140 @@
+// Line-of-sight visibility around the player. Cells inside the lantern radius that can be seen through the
+// maze walls are listed here for the renderer and get their Cell.VISIBLE bit set, which marks them explored.
+// Nothing is recomputed until the player crosses into another cell or the lantern/walls change.
+public class VisibilitySystem implements MazeListener {
+
+    private final MazeGrid maze;
+    private final Player player;
+
+    private int lastRow = -1;
+    private int lastCol = -1;
+    private double lastRadius = -1;
+    private boolean dirty = true;
+
+    // Cells in sight right now, grown only when the lantern gets bigger
+    private int[] visibleRows = new int[0];
+    private int[] visibleCols = new int[0];
+    private int visibleCount = 0;
+
+    public VisibilitySystem(MazeGrid maze, Player player) {
+        this.maze = maze;
+        this.player = player;
+
+        maze.addListener(this);
+    }
+
+    public int getVisibleCount() { return visibleCount; }
+    public int getVisibleRow(int i) { return visibleRows[i]; }
+    public int getVisibleCol(int i) { return visibleCols[i]; }
+
+    public boolean isInSight(int row, int col) {
+        for (int i = 0; i < visibleCount; i++) {
+            if (visibleRows[i] == row && visibleCols[i] == col) return true;
+        }
+        return false;
+    }
+
+    public void update() {
+        int cellSize = maze.getCellSize();
+        double centerX = player.getX() + player.getSize() / 2.0;
+        double centerY = player.getY() + player.getSize() / 2.0;
+        int row = (int)(centerY / cellSize);
+        int col = (int)(centerX / cellSize);
+        double radius = player.getLanternRadius();
+
+        if (!dirty && row == lastRow && col == lastCol && radius == lastRadius) return;
+
+        dirty = false;
+        lastRow = row;
+        lastCol = col;
+        lastRadius = radius;
+
+        // Only the square of cells the lantern can reach from anywhere inside the player's cell is considered
+        int reach = (int) Math.ceil(radius / cellSize) + 1;
+        int side = reach * 2 + 1;
+        if (visibleRows.length < side * side) {
+            visibleRows = new int[side * side];
+            visibleCols = new int[side * side];
+        }
+        visibleCount = 0;
+
+        for (int r = Math.max(0, row - reach); r <= Math.min(maze.getRows() - 1, row + reach); r++) {
+            for (int c = Math.max(0, col - reach); c <= Math.min(maze.getCols() - 1, col + reach); c++) {
+                if (!withinRadius(r, c, centerX, centerY, radius) && (r != row || c != col)) continue;
+                if (!hasLineOfSight(row, col, r, c)) continue;
+
+                visibleRows[visibleCount] = r;
+                visibleCols[visibleCount] = c;
+                visibleCount++;
+                maze.setVisible(r, c);
+            }
+        }
+    }
+
+    // Whether any part of the cell is inside the lantern circle
+    private boolean withinRadius(int row, int col, double centerX, double centerY, double radius) {
+        int cellSize = maze.getCellSize();
+        double nearestX = Math.max(col * cellSize, Math.min(centerX, (col + 1) * cellSize));
+        double nearestY = Math.max(row * cellSize, Math.min(centerY, (row + 1) * cellSize));
+        double dx = centerX - nearestX;
+        double dy = centerY - nearestY;
+
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    // Walks the cells crossed by the segment between the two cell centers, failing at the first wall.
+    // Boundary crossings are compared with integers so a ray exactly through a corner is detected reliably,
+    // in which case either way around the corner being open is enough.
+    private boolean hasLineOfSight(int fromRow, int fromCol, int toRow, int toCol) {
+        int dx = Math.abs(toCol - fromCol);
+        int dy = Math.abs(toRow - fromRow);
+        int stepCol = Integer.signum(toCol - fromCol);
+        int stepRow = Integer.signum(toRow - fromRow);
+        int wallX = stepCol > 0 ? Cell.RIGHT : Cell.LEFT;
+        int wallY = stepRow > 0 ? Cell.BOTTOM : Cell.TOP;
+
+        int row = fromRow;
+        int col = fromCol;
+        int stepsX = 0;
+        int stepsY = 0;
+
+        while (row != toRow || col != toCol) {
+            // Next vertical boundary at t = (2 * stepsX + 1) / (2 * dx), next horizontal one likewise
+            long nextX = dx == 0 ? Long.MAX_VALUE : (2L * stepsX + 1) * dy;
+            long nextY = dy == 0 ? Long.MAX_VALUE : (2L * stepsY + 1) * dx;
+
+            if (nextX < nextY) {
+                if (maze.hasWall(row, col, wallX)) return false;
+                col += stepCol;
+                stepsX++;
+            }
+            else if (nextY < nextX) {
+                if (maze.hasWall(row, col, wallY)) return false;
+                row += stepRow;
+                stepsY++;
+            }
+            else {
+                boolean horizontalFirst = !maze.hasWall(row, col, wallX) && !maze.hasWall(row, col + stepCol, wallY);
+                boolean verticalFirst = !maze.hasWall(row, col, wallY) && !maze.hasWall(row + stepRow, col, wallX);
+                if (!horizontalFirst && !verticalFirst) return false;
+
+                col += stepCol;
+                row += stepRow;
+                stepsX++;
+                stepsY++;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void onWallRemoved(int row, int col, int nextRow, int nextCol) {
+        dirty = true;
+    }
+
+    @Override
+    public void onMazeReset() {
+        dirty = true;
+        visibleCount = 0;
+    }
+}
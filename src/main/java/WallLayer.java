@@ -0,0 +1,189 @@
+import java.util.Arrays;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+// Floor and walls never change between pickaxe hits, so they are rasterized once into
+// CHUNK x CHUNK cell images and blitted each frame instead of stroking every wall again
+public class WallLayer implements MazeListener {
+
+    private static final int CHUNK = 8;         // cells per chunk side
+    private static final Color WALL_COLOR = Color.rgb(20, 20, 20); // Dark gray
+
+    private final MazeGrid maze;
+    private final Image floorTexture;
+    private final double scale;
+
+    // Wall strokes spill a bit past their cells, so every chunk image has a pad around it
+    private final int pad;
+    private final int chunkSize;
+
+    // Scratch canvas each chunk is drawn on before being snapshotted
+    private final Canvas scratch;
+    private final SnapshotParameters snapshotParams = new SnapshotParameters();
+
+    // Cache slots, the least recently drawn one is reused when all are taken. There are enough for the chunks
+    // on screen plus a ring around them, and more are added when a bigger canvas shows more chunks.
+    private int[] slotRow = new int[0];
+    private int[] slotCol = new int[0];
+    private long[] slotLastUsed = new long[0];
+    private WritableImage[] slotImage = new WritableImage[0];
+    private long frame = 0;
+
+    public WallLayer(MazeGrid maze, Image floorTexture, double scale) {
+        this.maze = maze;
+        this.floorTexture = floorTexture;
+        this.scale = scale;
+
+        pad = maze.getWallThickness();
+        chunkSize = CHUNK * maze.getCellSize() + pad * 2;
+
+        scratch = new Canvas(chunkSize * scale, chunkSize * scale);
+        scratch.getGraphicsContext2D().setImageSmoothing(false);
+        snapshotParams.setFill(Color.TRANSPARENT);
+
+        maze.addListener(this);
+    }
+
+    // Draws every chunk overlapping the given (inclusive) cell range, gc is expected to be in world scale
+    public void draw(GraphicsContext gc, double offsetX, double offsetY, int minRow, int maxRow, int minCol, int maxCol) {
+        frame++;
+
+        int cellSize = maze.getCellSize();
+        // Chunks in view, plus one more on each side
+        ensureSlots(maxRow / CHUNK - minRow / CHUNK + 3, maxCol / CHUNK - minCol / CHUNK + 3);
+
+        for (int chunkRow = minRow / CHUNK; chunkRow <= maxRow / CHUNK; chunkRow++) {
+            for (int chunkCol = minCol / CHUNK; chunkCol <= maxCol / CHUNK; chunkCol++) {
+                double x = chunkCol * CHUNK * cellSize - pad + offsetX;
+                double y = chunkRow * CHUNK * cellSize - pad + offsetY;
+
+                gc.drawImage(getChunk(chunkRow, chunkCol), x, y, chunkSize, chunkSize);
+            }
+        }
+    }
+
+    private void ensureSlots(int chunkRows, int chunkCols) {
+        int count = chunkRows * chunkCols;
+        int old = slotRow.length;
+        if (count <= old) return;
+
+        slotRow = Arrays.copyOf(slotRow, count);
+        slotCol = Arrays.copyOf(slotCol, count);
+        slotLastUsed = Arrays.copyOf(slotLastUsed, count);
+        slotImage = Arrays.copyOf(slotImage, count);
+        clear(old, count);
+    }
+
+    private WritableImage getChunk(int chunkRow, int chunkCol) {
+        int lru = 0;
+
+        for (int i = 0; i < slotRow.length; i++) {
+            if (slotRow[i] == chunkRow && slotCol[i] == chunkCol) {
+                slotLastUsed[i] = frame;
+                return slotImage[i];
+            }
+            if (slotLastUsed[i] < slotLastUsed[lru]) lru = i;
+        }
+
+        // Reuse the evicted image, snapshot writes into it when the size matches
+        slotImage[lru] = rasterize(chunkRow, chunkCol, slotImage[lru]);
+        slotRow[lru] = chunkRow;
+        slotCol[lru] = chunkCol;
+        slotLastUsed[lru] = frame;
+
+        return slotImage[lru];
+    }
+
+    private WritableImage rasterize(int chunkRow, int chunkCol, WritableImage target) {
+        GraphicsContext gc = scratch.getGraphicsContext2D();
+
+        int cellSize = maze.getCellSize();
+        int wallOffset = maze.getWallThickness() / 2;
+
+        int firstRow = chunkRow * CHUNK;
+        int firstCol = chunkCol * CHUNK;
+        int lastRow = Math.min(firstRow + CHUNK, maze.getRows()) - 1;
+        int lastCol = Math.min(firstCol + CHUNK, maze.getCols()) - 1;
+
+        gc.clearRect(0, 0, scratch.getWidth(), scratch.getHeight());
+        gc.save();
+        gc.scale(scale, scale);
+        gc.translate(pad - firstCol * cellSize, pad - firstRow * cellSize);
+
+        // Floor only covers this chunk's own cells so it never paints over a neighbor chunk's walls
+        gc.save();
+        gc.beginPath();
+        gc.rect(firstCol * cellSize + wallOffset, firstRow * cellSize + wallOffset,
+                (lastCol - firstCol + 1) * cellSize, (lastRow - firstRow + 1) * cellSize);
+        gc.clip();
+
+        double tileSize = cellSize * 3;
+        for (int row = firstRow - firstRow % 3; row <= lastRow; row += 3) {
+            for (int col = firstCol - firstCol % 3; col <= lastCol; col += 3) {
+                gc.drawImage(floorTexture, col * cellSize + wallOffset, row * cellSize + wallOffset, tileSize, tileSize);
+            }
+        }
+        gc.restore();
+
+        // Walls of the surrounding ring of cells too, their end caps reach into this chunk
+        gc.setStroke(WALL_COLOR);
+        gc.setLineWidth(maze.getWallThickness());
+
+        for (int row = Math.max(0, firstRow - 1); row <= Math.min(maze.getRows() - 1, lastRow + 1); row++) {
+            for (int col = Math.max(0, firstCol - 1); col <= Math.min(maze.getCols() - 1, lastCol + 1); col++) {
+                int flags = maze.getFlags(row, col);
+                double x = col * cellSize + wallOffset;
+                double y = row * cellSize + wallOffset;
+
+                if((flags & Cell.TOP) != 0) gc.strokeLine(x, y, x + cellSize, y);
+                if((flags & Cell.BOTTOM) != 0) gc.strokeLine(x, y + cellSize, x + cellSize, y + cellSize);
+                if((flags & Cell.LEFT) != 0) gc.strokeLine(x, y, x, y + cellSize);
+                if((flags & Cell.RIGHT) != 0) gc.strokeLine(x + cellSize, y, x + cellSize, y + cellSize);
+            }
+        }
+
+        gc.restore();
+
+        return scratch.snapshot(snapshotParams, target);
+    }
+
+    // Drops the cached image of every chunk that draws this cell (its own and any whose ring includes it)
+    private void invalidateCell(int row, int col) {
+        for (int i = 0; i < slotRow.length; i++) {
+            if (slotRow[i] < 0) continue;
+
+            int firstRow = slotRow[i] * CHUNK;
+            int firstCol = slotCol[i] * CHUNK;
+
+            if (row >= firstRow - 1 && row <= firstRow + CHUNK && col >= firstCol - 1 && col <= firstCol + CHUNK) {
+                slotRow[i] = -1;
+                slotCol[i] = -1;
+                slotLastUsed[i] = 0;
+            }
+        }
+    }
+
+    private void clear(int from, int to) {
+        for (int i = from; i < to; i++) {
+            slotRow[i] = -1;
+            slotCol[i] = -1;
+            slotLastUsed[i] = 0;
+        }
+    }
+
+    @Override
+    public void onWallRemoved(int row, int col, int nextRow, int nextCol) {
+        invalidateCell(row, col);
+        invalidateCell(nextRow, nextCol);
+    }
+
+    @Override
+    public void onMazeReset() {
+        clear(0, slotRow.length);
+    }
+}
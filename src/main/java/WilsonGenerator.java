@@ -0,0 +1,63 @@
+import java.util.SplittableRandom;
+
+// Wilson's algorithm: loop-erased random walks from each cell not yet in the maze until they hit it, then the
+// erased walk is carved. Every spanning tree is equally likely, so there's no corridor bias like the
+// backtracker's, at the price of long early walks while the maze is still small. 2 bytes per cell.
+public class WilsonGenerator implements MazeGenerator {
+
+    private static final int UP = 0;
+    private static final int DOWN = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+
+    @Override
+    public void carve(byte[] cells, int rows, int cols, SplittableRandom random) {
+        int total = rows * cols;
+        boolean[] inMaze = new boolean[total];
+        byte[] exitDirection = new byte[total];   // last way the current walk left each cell, later exits overwrite loops
+
+        inMaze[random.nextInt(total)] = true;
+
+        for (int start = 0; start < total; start++) {
+            if (inMaze[start]) continue;
+
+            int cell = start;
+            while (!inMaze[cell]) {
+                int direction = randomDirection(cell, rows, cols, random);
+                exitDirection[cell] = (byte) direction;
+                cell = step(cell, direction, cols);
+            }
+
+            // Retrace the walk along the last exits only, which skips every loop it made
+            cell = start;
+            while (!inMaze[cell]) {
+                int next = step(cell, exitDirection[cell], cols);
+                Maze.openWall(cells, cols, cell, next);
+                inMaze[cell] = true;
+                cell = next;
+            }
+        }
+    }
+
+    private static int randomDirection(int cell, int rows, int cols, SplittableRandom random) {
+        int row = cell / cols;
+        int col = cell % cols;
+
+        while (true) {
+            int direction = random.nextInt(4);
+            if (direction == UP && row > 0) return direction;
+            if (direction == DOWN && row < rows - 1) return direction;
+            if (direction == LEFT && col > 0) return direction;
+            if (direction == RIGHT && col < cols - 1) return direction;
+        }
+    }
+
+    private static int step(int cell, int direction, int cols) {
+        switch (direction) {
+            case UP: return cell - cols;
+            case DOWN: return cell + cols;
+            case LEFT: return cell - 1;
+            default: return cell + 1;
+        }
+    }
+}
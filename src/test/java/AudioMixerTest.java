@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class AudioMixerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    // Every play() the mixer makes, as { channel, clip }
+    private final List<int[]> plays = new ArrayList<>();
+    private final AudioMixer mixer = new AudioMixer((channel, clip) -> plays.add(new int[] { channel, clip }));
+
+    @Test
+    void sameFrameTriggersPlayOnce() {
+        int coins = mixer.addChannel(4, 0.5);
+
+        for (int i = 0; i < 10; i++) mixer.trigger(coins);
+        mixer.flush(0);
+
+        assertEquals(1, plays.size());
+        assertEquals(coins, plays.get(0)[0]);
+        assertEquals(9, mixer.getTriggersCoalesced());
+        assertEquals(1, mixer.getActiveVoices());
+
+        // Nothing pending, nothing new plays
+        mixer.flush(SECOND / 60);
+        assertEquals(1, plays.size());
+    }
+
+    @Test
+    void voiceCapDropsTriggersUntilAVoiceEnds() {
+        int steps = mixer.addChannel(2, 1.0);
+
+        for (int frame = 0; frame < 5; frame++) {
+            mixer.trigger(steps);
+            mixer.flush(frame * SECOND / 10);
+        }
+
+        assertEquals(2, plays.size());
+        assertEquals(2, mixer.getActiveVoices());
+        assertEquals(3, mixer.getTriggersDropped());
+
+        // The first voice ended a second after it started, so its slot is free again
+        mixer.trigger(steps);
+        mixer.flush(SECOND);
+
+        assertEquals(3, plays.size());
+        assertEquals(2, mixer.getActiveVoices());
+    }
+
+    @Test
+    void channelsHaveTheirOwnCapAndNeverRepeatAClipInARow() {
+        int coins = mixer.addChannel(1, 0.1, 0.1, 0.1);
+        int hits = mixer.addChannel(1, 0.1);
+
+        for (int frame = 0; frame < 20; frame++) {
+            mixer.trigger(coins);
+            mixer.trigger(hits);
+            mixer.flush(frame * SECOND);
+        }
+
+        assertEquals(40, plays.size());
+        for (int i = 2; i < plays.size(); i += 2) {
+            assertEquals(coins, plays.get(i)[0]);
+            assertNotEquals(plays.get(i - 2)[1], plays.get(i)[1]);
+        }
+    }
+}
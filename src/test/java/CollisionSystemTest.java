@@ -0,0 +1,169 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class CollisionSystemTest {
+
+    private static final double DT = 1.0 / 120;
+    private static final double CONTACT_EPSILON = 1.0 / 64;
+
+    // Random held directions on a level-8 maze: no closed wall is ever crossed and no tick ends inside one
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 100, 100_000 })
+    void randomWalkNeverCrossesAWall(int speedLevel) {
+        Simulation simulation = levelSimulation(speedLevel);
+        Maze maze = simulation.getMaze();
+        Player player = simulation.getPlayer();
+        CollisionSystem collision = new CollisionSystem(maze, player, GameSounds.SILENT);
+        SplittableRandom random = new SplittableRandom(speedLevel);
+        int moved = 0;
+
+        for (int tick = 0; tick < 50_000; tick++) {
+            if (tick % 20 == 0) {
+                simulation.clearInput();
+                switch (random.nextInt(4)) {
+                    case 0 -> simulation.setMoveUp(true);
+                    case 1 -> simulation.setMoveDown(true);
+                    case 2 -> simulation.setMoveLeft(true);
+                    default -> simulation.setMoveRight(true);
+                }
+            }
+
+            int row = centerRow(maze, player);
+            int col = centerCol(maze, player);
+            double x = player.getX();
+            double y = player.getY();
+
+            simulation.update(DT);
+            if (player.getX() != x || player.getY() != y) moved++;
+
+            int nextRow = centerRow(maze, player);
+            int nextCol = centerCol(maze, player);
+
+            for (int c = Math.min(col, nextCol); c < Math.max(col, nextCol); c++) {
+                assertTrue(!maze.hasWall(row, c, Cell.RIGHT), "crossed a wall at tick " + tick);
+            }
+            for (int r = Math.min(row, nextRow); r < Math.max(row, nextRow); r++) {
+                assertTrue(!maze.hasWall(r, col, Cell.BOTTOM), "crossed a wall at tick " + tick);
+            }
+            assertTrue(collision.canMove(0, 0), "inside a wall after tick " + tick);
+            assertEquals(8, maze.getLevel());
+        }
+
+        assertTrue(moved > 1000, "the player barely moved");
+    }
+
+    // Held right, then down, from the center of the start cell: the player ends up flush against the first wall
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 100, 100_000 })
+    void stopsFlushAgainstTheWall(int speedLevel) {
+        Simulation simulation = levelSimulation(speedLevel);
+        Maze maze = simulation.getMaze();
+        Player player = simulation.getPlayer();
+        int cellSize = maze.getCellSize();
+
+        int row = centerRow(maze, player);
+        int col = centerCol(maze, player);
+        int wallCol = col;
+        while (!maze.hasWall(row, wallCol, Cell.RIGHT)) wallCol++;
+
+        simulation.setMoveRight(true);
+        runUntilStopped(simulation);
+        double gap = (wallCol + 1) * cellSize - (player.getX() + player.getSize());
+        assertTrue(gap >= 0 && gap <= CONTACT_EPSILON, "gap to the right wall " + gap);
+        simulation.setMoveRight(false);
+
+        // Back to a cell center so the vertical run doesn't clip a corner post
+        player.setX(wallCol * cellSize + (cellSize - player.getSize()) / 2.0);
+        int wallRow = row;
+        while (!maze.hasWall(wallRow, wallCol, Cell.BOTTOM)) wallRow++;
+
+        simulation.setMoveDown(true);
+        runUntilStopped(simulation);
+        gap = (wallRow + 1) * cellSize - (player.getY() + player.getSize());
+        assertTrue(gap >= 0 && gap <= CONTACT_EPSILON, "gap to the bottom wall " + gap);
+    }
+
+    // The coin check looks at the cells under the player only: at most 4 cell reads on the smallest and a huge level
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 200 })
+    void coinCheckReadsAtMostFourCells(int level) {
+        Maze maze = new Maze(3);
+        maze.resetMaze(level, Maze.levelSeed(3, level));
+        CountingGrid grid = new CountingGrid(maze);
+        Player player = new Player();
+        CollisionSystem collision = new CollisionSystem(grid, player, GameSounds.SILENT);
+        SplittableRandom random = new SplittableRandom(level);
+        double width = maze.getCols() * maze.getCellSize() - player.getSize();
+        double height = maze.getRows() * maze.getCellSize() - player.getSize();
+
+        for (int i = 0; i < 10_000; i++) {
+            // Every fourth position straddles a cell corner, the worst case
+            double x = i % 4 == 0 ? (random.nextInt(maze.getCols() - 1) + 1) * maze.getCellSize() - player.getSize() / 2.0 : random.nextDouble(width);
+            double y = i % 4 == 0 ? (random.nextInt(maze.getRows() - 1) + 1) * maze.getCellSize() - player.getSize() / 2.0 : random.nextDouble(height);
+            player.setX(x);
+            player.setY(y);
+
+            grid.reads = 0;
+            collision.checkCoinCollisions();
+            assertTrue(grid.reads <= 4, grid.reads + " cells read at (" + x + ", " + y + ")");
+        }
+    }
+
+    // Counts every cell read on its way to the real maze
+    private static class CountingGrid implements MazeGrid {
+        private final Maze maze;
+        int reads = 0;
+
+        CountingGrid(Maze maze) { this.maze = maze; }
+
+        public int getRows() { return maze.getRows(); }
+        public int getCols() { return maze.getCols(); }
+        public int getCellSize() { return maze.getCellSize(); }
+        public int getWallThickness() { return maze.getWallThickness(); }
+        public int getFlags(int row, int col) { reads++; return maze.getFlags(row, col); }
+        public boolean hasWall(int row, int col, int wall) { reads++; return maze.hasWall(row, col, wall); }
+        public boolean hasCoin(int row, int col) { reads++; return maze.hasCoin(row, col); }
+        public boolean isVisible(int row, int col) { reads++; return maze.isVisible(row, col); }
+        public void setVisible(int row, int col) { maze.setVisible(row, col); }
+        public boolean removeCoin(int row, int col) { return maze.removeCoin(row, col); }
+        public void removeWall(int row, int col, int nextRow, int nextCol) { maze.removeWall(row, col, nextRow, nextCol); }
+        public Shop getShop() { return maze.getShop(); }
+        public Exit getExit() { return maze.getExit(); }
+        public void addListener(MazeListener listener) { maze.addListener(listener); }
+    }
+
+    private static void runUntilStopped(Simulation simulation) {
+        Player player = simulation.getPlayer();
+
+        for (int tick = 0; tick < 100_000; tick++) {
+            double x = player.getX();
+            double y = player.getY();
+            simulation.update(DT);
+            if (player.getX() == x && player.getY() == y) return;
+        }
+        throw new AssertionError("still moving");
+    }
+
+    // Level 8 (51 x 51 cells), player at the center with the given speed level
+    private static Simulation levelSimulation(int speedLevel) {
+        Simulation simulation = new Simulation(GameSounds.SILENT, 5);
+        for (int i = 0; i < 8; i++) simulation.nextLevel();
+
+        Player player = simulation.getPlayer();
+        player.restore(0, speedLevel, 1, 0, Direction.DOWN);
+        return simulation;
+    }
+
+    private static int centerRow(Maze maze, Player player) {
+        return (int) ((player.getY() + player.getSize() / 2.0) / maze.getCellSize());
+    }
+
+    private static int centerCol(Maze maze, Player player) {
+        return (int) ((player.getX() + player.getSize() / 2.0) / maze.getCellSize());
+    }
+}
@@ -0,0 +1,135 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EndlessMazeTest {
+
+    private static final int MAX_RESIDENT = 64;
+
+    @TempDir
+    Path dir;
+
+    // Diagonally across 256 regions with visibility and collision reading through the region cache
+    @Test
+    void walkAcrossRegionsKeepsResidencyBounded() throws IOException {
+        int size = EndlessMaze.REGION * 256;
+
+        try (EndlessMaze maze = new EndlessMaze(dir.resolve("walk.mze"), size, size, 7)) {
+            Player player = new Player();
+            VisibilitySystem visibility = new VisibilitySystem(maze, player);
+            CollisionSystem collision = new CollisionSystem(maze, player, GameSounds.SILENT);
+            int cellSize = maze.getCellSize();
+            double inset = (cellSize - player.getSize()) / 2.0;
+
+            for (int cell = 0; cell < size - 1; cell++) {
+                player.setX(cell * cellSize + inset);
+                player.setY(cell * cellSize + inset);
+                visibility.update();
+
+                // Walls agree from both sides, also where the next cell is in another region
+                assertEquals(maze.hasWall(cell, cell, Cell.RIGHT), maze.hasWall(cell, cell + 1, Cell.LEFT));
+                assertEquals(maze.hasWall(cell, cell, Cell.BOTTOM), maze.hasWall(cell + 1, cell, Cell.TOP));
+
+                // A full cell to the right or down gets through exactly when that wall is open
+                assertEquals(maze.hasWall(cell, cell, Cell.RIGHT), collision.sweep(cellSize, 0) < 1);
+                assertEquals(maze.hasWall(cell, cell, Cell.BOTTOM), collision.sweep(0, cellSize) < 1);
+
+                assertTrue(maze.getResidentRegions() <= MAX_RESIDENT);
+            }
+
+            assertTrue(maze.getRegionsGenerated() >= 256);
+
+            // The first regions were evicted long ago, what was explored there came back from the file
+            long loaded = maze.getRegionsLoaded();
+            assertTrue(maze.isVisible(0, 0));
+            assertEquals(loaded + 1, maze.getRegionsLoaded());
+        }
+    }
+
+    // Regions are carved in opposite orders in two files, and the first file is reopened: always the same maze
+    @Test
+    void regionsDoNotDependOnGenerationOrder() throws IOException {
+        int rows = 300;
+        int cols = 250;
+        int[] forward = new int[rows * cols];
+
+        try (EndlessMaze maze = new EndlessMaze(dir.resolve("forward.mze"), rows, cols, 11)) {
+            // Each region a perfect maze of its own plus one opening per shared border: 5 x 4 regions, 31 borders
+            MazeTest.assertConnected(maze);
+            assertEquals(rows * cols - 20 + 31, MazeTest.countOpenings(maze));
+            for (int i = 0; i < forward.length; i++) forward[i] = maze.getFlags(i / cols, i % cols);
+        }
+
+        try (EndlessMaze maze = new EndlessMaze(dir.resolve("backward.mze"), rows, cols, 11)) {
+            for (int i = forward.length - 1; i >= 0; i--) assertEquals(forward[i], maze.getFlags(i / cols, i % cols));
+        }
+
+        try (EndlessMaze maze = new EndlessMaze(dir.resolve("forward.mze"), rows, cols, 11)) {
+            for (int i = 0; i < forward.length; i++) assertEquals(forward[i], maze.getFlags(i / cols, i % cols));
+            assertEquals(0, maze.getRegionsGenerated());
+        }
+    }
+
+    // A run in the middle of a 16384 x 16384 maze: only the regions around the player are ever carved, reaching
+    // the exit places the next one farther out instead of starting a level, and the pickaxe works on the file
+    @Test
+    void endlessRunPlacesShopAndExitAroundThePlayer() throws IOException {
+        int size = EndlessMaze.REGION * 256;
+
+        try (EndlessMaze maze = new EndlessMaze(dir.resolve("run.mze"), size, size, 3)) {
+            Simulation simulation = new Simulation(GameSounds.SILENT, maze);
+            Player player = simulation.getPlayer();
+            int cellSize = maze.getCellSize();
+
+            assertTrue(simulation.isEndless());
+            assertNull(simulation.getMaze());
+            assertNull(simulation.getPathfinding());
+            assertEquals(1, maze.getStage());
+            assertTrue(maze.getRegionsGenerated() <= 4);
+
+            int row = size / 2;
+            int col = size / 2;
+            Exit exit = maze.getExit();
+            Shop shop = maze.getShop();
+            assertNotNull(exit);
+            assertNotNull(shop);
+            assertEquals(16, Math.abs(exit.row - row) + Math.abs(exit.col - col));
+            assertEquals(8, Math.abs(shop.row - row) + Math.abs(shop.col - col));
+
+            // Stand on the exit and take it
+            double inset = (cellSize - player.getSize()) / 2.0;
+            player.setX(exit.col * cellSize + inset);
+            player.setY(exit.row * cellSize + inset);
+            simulation.update(1 / 120.0);
+            assertTrue(simulation.canExit());
+
+            simulation.interact();
+            assertEquals(2, maze.getStage());
+            assertEquals(exit.col * cellSize + inset, player.getX());
+            assertEquals(32, Math.abs(maze.getExit().row - exit.row) + Math.abs(maze.getExit().col - exit.col));
+            assertFalse(simulation.canExit());
+
+            // Break the first wall around the player's cell, both sides of it open up
+            Direction[] facings = { Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT };
+            int[] walls = { Cell.TOP, Cell.BOTTOM, Cell.LEFT, Cell.RIGHT };
+            int side = 0;
+            while (!maze.hasWall(exit.row, exit.col, walls[side])) side++;
+
+            player.restore(0, 1, 1, 1, facings[side]);
+            simulation.usePickaxe();
+            assertEquals(0, player.getPickaxes());
+            assertFalse(maze.hasWall(exit.row, exit.col, walls[side]));
+            int nextRow = exit.row + (side == 0 ? -1 : side == 1 ? 1 : 0);
+            int nextCol = exit.col + (side == 2 ? -1 : side == 3 ? 1 : 0);
+            assertEquals(0, maze.getFlags(nextRow, nextCol) & walls[side ^ 1]);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class FrameAllocationTest {
+
+    private static final int FRAMES = 20_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Two ticks, a mixer flush and the frame timings per frame, wandering a level-5 maze and picking up coins.
+    // With stats on the overlay text is also refreshed every 30 frames, like the renderer does.
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void steadyStateFramesDoNotAllocate(boolean statsEnabled) {
+        AudioMixer mixer = new AudioMixer((channel, clip) -> {});
+        int coinChannel = mixer.addChannel(4, 0.3, 0.4);
+        int wallChannel = mixer.addChannel(2, 1.0);
+        int stepChannel = mixer.addChannel(2, 0.4);
+        GameSounds sounds = new GameSounds() {
+            public void playCoinPickup() { mixer.trigger(coinChannel); }
+            public void playWallBreak() { mixer.trigger(wallChannel); }
+            public void playFootstep() { mixer.trigger(stepChannel); }
+        };
+
+        Simulation simulation = new Simulation(sounds, 11);
+        for (int i = 0; i < 5; i++) simulation.nextLevel();
+
+        FrameStats stats = new FrameStats();
+        stats.setEnabled(statsEnabled);
+        simulation.setStats(stats);
+
+        StringBuilder[] overlay = new StringBuilder[FrameStats.OVERLAY_LINES];
+        for (int i = 0; i < overlay.length; i++) overlay[i] = new StringBuilder(80);
+
+        SplittableRandom random = new SplittableRandom(1);
+        long[] now = { 0 };
+
+        // Warm-up fills caches and lets the JIT settle: while methods are still being compiled and deoptimized
+        // the JVM itself can allocate a few bytes on this thread (with -Xint the frame path allocates nothing)
+        for (int i = 0; i < 3; i++) runFrames(simulation, mixer, stats, overlay, random, now);
+
+        long thread = Thread.currentThread().threadId();
+        long before = THREADS.getThreadAllocatedBytes(thread);
+        runFrames(simulation, mixer, stats, overlay, random, now);
+        long allocated = THREADS.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(0, allocated, "bytes allocated over " + FRAMES + " frames");
+        assertEquals(5, simulation.getMaze().getLevel());
+        assertTrue(mixer.getTriggersPlayed() > 0);
+    }
+
+    private static void runFrames(Simulation simulation, AudioMixer mixer, FrameStats stats, StringBuilder[] overlay,
+                                  SplittableRandom random, long[] now) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            if (frame % 40 == 0) simulation.applyInput(1 << random.nextInt(4));
+
+            stats.beginFrame();
+            long update = stats.start();
+            simulation.update(1 / 120.0);
+            simulation.update(1 / 120.0);
+            stats.end(FrameStats.UPDATE, update);
+
+            now[0] += 16_666_666;
+            mixer.flush(now[0]);
+            stats.endFrame();
+
+            if (stats.isEnabled() && frame % 30 == 0) stats.formatOverlay(overlay);
+        }
+    }
+}
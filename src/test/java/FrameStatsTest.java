@@ -0,0 +1,64 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+class FrameStatsTest {
+
+    // Slow frames, then off and on again (F3 twice): only the fast frames of the new session count
+    @Test
+    void reEnablingStartsANewSession() {
+        FrameStats stats = new FrameStats();
+        stats.setEnabled(true);
+        for (int i = 0; i < 50; i++) frame(stats, 2_000_000);
+
+        stats.setEnabled(false);
+        stats.setEnabled(true);
+        for (int i = 0; i < 10; i++) frame(stats, 0);
+
+        assertEquals(10, stats.getFrames());
+        assertEquals(10, stats.size());
+        assertTrue(stats.max(FrameStats.UPDATE) < 2_000_000, "a frame from before the pause is still counted");
+    }
+
+    // Same digits String.format("%7.2f") gives, rounding half up
+    @Test
+    void millisAreFixedPointWithTwoDecimals() {
+        long[] nanos = { 0, 4_999, 5_000, 1_234_567, 16_666_666, 999_995_000, 123_456_789_000L };
+
+        for (long value : nanos) {
+            StringBuilder line = new StringBuilder();
+            FrameStats.appendMillis(line, value, 7);
+            assertEquals(String.format(Locale.ROOT, "%7.2f", Math.floor(value / 1e4 + 0.5) / 100), line.toString());
+        }
+    }
+
+    @Test
+    void overlayHasAHeaderEveryPhaseAndTheGcLine() {
+        FrameStats stats = new FrameStats();
+        stats.setEnabled(true);
+        for (int i = 0; i < 5; i++) frame(stats, 0);
+
+        StringBuilder[] lines = new StringBuilder[FrameStats.OVERLAY_LINES];
+        for (int i = 0; i < lines.length; i++) lines[i] = new StringBuilder();
+        stats.formatOverlay(lines);
+        stats.formatOverlay(lines);     // builders are rewritten, not appended to
+
+        assertEquals("             p50    p95    p99    max  (ms, 5 frames)", lines[0].toString());
+        for (int phase = 0; phase < FrameStats.PHASES; phase++) {
+            assertTrue(lines[phase + 1].toString().startsWith(String.format("%-9s", FrameStats.PHASE_NAMES[phase])));
+            assertEquals(9 + 4 * 7, lines[phase + 1].length());
+        }
+        assertTrue(lines[FrameStats.PHASES + 1].toString().startsWith("GC in "));
+    }
+
+    private static void frame(FrameStats stats, long updateNanos) {
+        stats.beginFrame();
+        long start = stats.start();
+        while (System.nanoTime() - start < updateNanos) Thread.onSpinWait();
+        stats.end(FrameStats.UPDATE, start);
+        stats.endFrame();
+    }
+}
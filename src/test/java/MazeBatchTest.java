@@ -0,0 +1,38 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class MazeBatchTest {
+
+    private static final long RUN_SEED = 21;
+    private static final int LEVELS = 16;
+
+    @Test
+    void threadCountDoesNotChangeTheBatch() {
+        Maze[] sequential = MazeBatch.generateRun(RUN_SEED, 0, LEVELS, 1);
+        Maze[] parallel = MazeBatch.generateRun(RUN_SEED, 0, LEVELS, 4);
+
+        assertEquals(MazeBatch.checksum(sequential), MazeBatch.checksum(parallel));
+        for (int i = 0; i < LEVELS; i++) {
+            assertArrayEquals(MazeTest.cells(sequential[i]), MazeTest.cells(parallel[i]));
+        }
+    }
+
+    @Test
+    void batchMatchesTheLevelsARunPlays() {
+        Maze[] batch = MazeBatch.generateRun(RUN_SEED, 0, LEVELS, 4);
+        Maze run = new Maze(RUN_SEED);
+
+        for (int level = 0; level < LEVELS; level++) {
+            run.resetMaze();
+
+            Maze single = new Maze(RUN_SEED);
+            single.resetMaze(level, Maze.levelSeed(RUN_SEED, level));
+
+            assertEquals(level, batch[level].getLevel());
+            assertArrayEquals(MazeTest.cells(single), MazeTest.cells(batch[level]));
+            assertArrayEquals(MazeTest.cells(run), MazeTest.cells(batch[level]));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class MazeGeneratorTest {
+
+    private static final int[][] SIZES = { { 1, 1 }, { 1, 7 }, { 7, 1 }, { 2, 2 }, { 33, 57 }, { 300, 301 } };
+
+    // 300 x 301 is over Sidewinder's parallel threshold, the smaller sizes are carved on one thread
+    @ParameterizedTest
+    @ValueSource(strings = { "backtracker", "kruskal", "wilson", "eller", "sidewinder" })
+    void carvesTheSameSpanningTreeForTheSameSeed(String name) {
+        MazeGenerator generator = MazeGenerator.named(name);
+
+        for (int[] size : SIZES) {
+            for (long seed = 0; seed < 3; seed++) {
+                Maze maze = carve(generator, size[0], size[1], seed);
+
+                MazeTest.assertSpanningTree(maze);
+                assertArrayEquals(MazeTest.cells(maze), MazeTest.cells(carve(generator, size[0], size[1], seed)));
+            }
+        }
+    }
+
+    @Test
+    void levelsUseTheGeneratorPickedForThem() {
+        Maze mixed = new Maze(9);
+        mixed.setGenerators(level -> level % 2 == 0 ? MazeGenerator.KRUSKAL : MazeGenerator.ELLER);
+
+        for (int level = 0; level < 4; level++) {
+            mixed.resetMaze();
+
+            Maze expected = new Maze(9);
+            expected.setGenerator(level % 2 == 0 ? MazeGenerator.KRUSKAL : MazeGenerator.ELLER);
+            expected.resetMaze(level, Maze.levelSeed(9, level));
+
+            assertEquals(level, mixed.getLevel());
+            assertArrayEquals(MazeTest.cells(expected), MazeTest.cells(mixed));
+        }
+
+        // Same level and seed with another generator is another maze
+        Maze backtracker = new Maze(9);
+        backtracker.resetMaze(3, Maze.levelSeed(9, 3));
+        assertFalse(Arrays.equals(MazeTest.cells(backtracker), MazeTest.cells(mixed)));
+    }
+
+    @Test
+    void ellerStreamsTheRowsCarveStores() {
+        int rows = 40;
+        int cols = 25;
+        byte[] streamed = new byte[rows * cols];
+
+        EllerGenerator.generate(rows, cols, new SplittableRandom(4),
+                (row, flags) -> System.arraycopy(flags, 0, streamed, row * cols, cols));
+
+        byte[] carved = new byte[rows * cols];
+        Arrays.fill(carved, (byte) Cell.WALLS);
+        MazeGenerator.ELLER.carve(carved, rows, cols, new SplittableRandom(4));
+
+        assertArrayEquals(carved, streamed);
+    }
+
+    private static Maze carve(MazeGenerator generator, int rows, int cols, long seed) {
+        byte[] cells = new byte[rows * cols];
+        Arrays.fill(cells, (byte) Cell.WALLS);
+        generator.carve(cells, rows, cols, new SplittableRandom(seed));
+
+        return Maze.restore(0, 0, seed, rows, cols, cells);
+    }
+}
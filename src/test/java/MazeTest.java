@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class MazeTest {
+
+    // Level 500 is 3003 x 3003 cells, a recursive carve would be millions of frames deep
+    @Test
+    void largeLevelCarvesOnDefaultThreadStack() throws InterruptedException {
+        Maze maze = new Maze(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread thread = new Thread(() -> maze.resetMaze(500, Maze.levelSeed(1, 500)));
+        thread.setUncaughtExceptionHandler((t, e) -> failure.set(e));
+        thread.start();
+        thread.join();
+
+        assertNull(failure.get());
+        assertSpanningTree(maze);
+    }
+
+    @Test
+    void sameRunSeedGivesSameLevels() {
+        Maze first = new Maze(42);
+        Maze second = new Maze(42);
+
+        for (int level = 0; level < 6; level++) {
+            first.resetMaze();
+            second.resetMaze();
+
+            assertEquals(level, first.getLevel());
+            assertEquals(first.getSeed(), second.getSeed());
+            assertSameLevel(first, second);
+        }
+    }
+
+    // Any level can be rebuilt on its own from (level, seed), without playing the levels before it
+    @Test
+    void levelRegeneratesFromItsSeedAlone() {
+        Maze played = new Maze(42);
+        for (int level = 0; level <= 7; level++) played.resetMaze();
+
+        Maze fresh = new Maze();
+        fresh.resetMaze(played.getLevel(), played.getSeed());
+
+        assertEquals(Maze.levelSeed(42, 7), played.getSeed());
+        assertSameLevel(played, fresh);
+    }
+
+    @Test
+    void otherSeedGivesOtherLevel() {
+        Maze first = new Maze(1);
+        Maze second = new Maze(1);
+        first.resetMaze(7, 100);
+        second.resetMaze(7, 101);
+
+        assertFalse(Arrays.equals(cells(first), cells(second)));
+    }
+
+    // Same walls, coins, shop and exit in every cell
+    private static void assertSameLevel(Maze expected, Maze actual) {
+        assertEquals(expected.getRows(), actual.getRows());
+        assertEquals(expected.getCols(), actual.getCols());
+        assertArrayEquals(cells(expected), cells(actual));
+        assertEquals(expected.getShop().row, actual.getShop().row);
+        assertEquals(expected.getShop().col, actual.getShop().col);
+        assertEquals(expected.getExit().row, actual.getExit().row);
+        assertEquals(expected.getExit().col, actual.getExit().col);
+    }
+
+    static int[] cells(Maze maze) {
+        int[] flags = new int[maze.getRows() * maze.getCols()];
+        for (int i = 0; i < flags.length; i++) flags[i] = maze.getFlags(i / maze.getCols(), i % maze.getCols());
+        return flags;
+    }
+
+    // Every cell reachable from the first one and exactly cells - 1 openings: connected without loops
+    static void assertSpanningTree(MazeGrid maze) {
+        assertConnected(maze);
+        assertEquals((long) maze.getRows() * maze.getCols() - 1, countOpenings(maze), "openings");
+    }
+
+    static void assertConnected(MazeGrid maze) {
+        int rows = maze.getRows();
+        int cols = maze.getCols();
+        boolean[] reached = new boolean[rows * cols];
+        int[] queue = new int[rows * cols];
+        int head = 0;
+        int tail = 0;
+
+        reached[0] = true;
+        queue[tail++] = 0;
+        while (head < tail) {
+            int index = queue[head++];
+            int row = index / cols;
+            int col = index % cols;
+
+            if (!maze.hasWall(row, col, Cell.TOP) && !reached[index - cols]) { reached[index - cols] = true; queue[tail++] = index - cols; }
+            if (!maze.hasWall(row, col, Cell.BOTTOM) && !reached[index + cols]) { reached[index + cols] = true; queue[tail++] = index + cols; }
+            if (!maze.hasWall(row, col, Cell.LEFT) && !reached[index - 1]) { reached[index - 1] = true; queue[tail++] = index - 1; }
+            if (!maze.hasWall(row, col, Cell.RIGHT) && !reached[index + 1]) { reached[index + 1] = true; queue[tail++] = index + 1; }
+        }
+
+        assertEquals(rows * cols, tail, "cells reachable from the start");
+    }
+
+    // Open walls between two cells of the grid, each counted once
+    static long countOpenings(MazeGrid maze) {
+        long openings = 0;
+
+        for (int row = 0; row < maze.getRows(); row++) {
+            for (int col = 0; col < maze.getCols(); col++) {
+                if (col < maze.getCols() - 1 && !maze.hasWall(row, col, Cell.RIGHT)) openings++;
+                if (row < maze.getRows() - 1 && !maze.hasWall(row, col, Cell.BOTTOM)) openings++;
+            }
+        }
+        return openings;
+    }
+}
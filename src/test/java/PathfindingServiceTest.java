@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import org.junit.jupiter.api.Test;
+
+class PathfindingServiceTest {
+
+    // A wall between cells whose exit distances differ by more than one is a shortcut
+    @Test
+    void removingAShortcutWallMatchesAFreshSearch() {
+        Maze maze = level();
+        PathfindingService pathfinding = new PathfindingService(maze);
+        int[] wall = findWall(maze, pathfinding, true);
+        int farther = Math.max(pathfinding.distanceToExit(wall[0], wall[1]), pathfinding.distanceToExit(wall[2], wall[3]));
+
+        assertRelaxedMatchesFresh(maze, pathfinding, wall);
+        assertTrue(Math.max(pathfinding.distanceToExit(wall[0], wall[1]), pathfinding.distanceToExit(wall[2], wall[3])) < farther);
+    }
+
+    // Neighbors one step apart already have the best path the opening could give
+    @Test
+    void removingAWallThatShortensNothingMatchesAFreshSearch() {
+        Maze maze = level();
+        PathfindingService pathfinding = new PathfindingService(maze);
+        int[] wall = findWall(maze, pathfinding, false);
+        int[][] before = distances(maze, pathfinding);
+
+        assertRelaxedMatchesFresh(maze, pathfinding, wall);
+        for (int row = 0; row < maze.getRows(); row++) {
+            for (int col = 0; col < maze.getCols(); col++) {
+                assertEquals(before[0][row * maze.getCols() + col], pathfinding.distanceToExit(row, col));
+            }
+        }
+    }
+
+    private static Maze level() {
+        Maze maze = new Maze(5);
+        maze.resetMaze(6, Maze.levelSeed(5, 6));
+        return maze;
+    }
+
+    private static void assertRelaxedMatchesFresh(Maze maze, PathfindingService pathfinding, int[] wall) {
+        maze.removeWall(wall[0], wall[1], wall[2], wall[3]);
+
+        int[][] relaxed = distances(maze, pathfinding);
+        int[][] fresh = distances(maze, new PathfindingService(maze));
+
+        for (int i = 0; i < fresh[0].length; i++) {
+            assertEquals(fresh[0][i], relaxed[0][i], "exit distance of cell " + i);
+            assertEquals(fresh[1][i], relaxed[1][i], "shop distance of cell " + i);
+        }
+    }
+
+    // Builds both fields, so the service relaxes them on the next wall removal instead of building them then
+    private static int[][] distances(Maze maze, PathfindingService pathfinding) {
+        int cols = maze.getCols();
+        int[][] distance = new int[2][maze.getRows() * cols];
+
+        for (int row = 0; row < maze.getRows(); row++) {
+            for (int col = 0; col < cols; col++) {
+                distance[0][row * cols + col] = pathfinding.distanceToExit(row, col);
+                distance[1][row * cols + col] = pathfinding.distanceToShop(row, col);
+            }
+        }
+        return distance;
+    }
+
+    // First horizontal wall whose removal would (or would not) shorten some path to the exit
+    private static int[] findWall(Maze maze, PathfindingService pathfinding, boolean shortcut) {
+        distances(maze, pathfinding);
+
+        for (int row = 0; row < maze.getRows(); row++) {
+            for (int col = 0; col + 1 < maze.getCols(); col++) {
+                if (!maze.hasWall(row, col, Cell.RIGHT)) continue;
+
+                int gap = Math.abs(pathfinding.distanceToExit(row, col) - pathfinding.distanceToExit(row, col + 1));
+                if (gap > 1 == shortcut) return new int[] { row, col, row, col + 1 };
+            }
+        }
+        return fail("no such wall in the test level");
+    }
+}
@@ -0,0 +1,93 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayTest {
+
+    private static final int TICKS_PER_SECOND = 60;
+    private static final double DT = 1.0 / TICKS_PER_SECOND;
+
+    @TempDir
+    Path dir;
+
+    // Enters the shop with E, leaves with E, enters again and buys, all of it recorded and played back
+    @Test
+    void shopVisitsReplayToTheSameState() throws IOException {
+        Path file = dir.resolve("shop.mzr");
+        Simulation recorded = new Simulation(GameSounds.SILENT, 3);
+
+        try (ReplayRecorder recorder = new ReplayRecorder(file, 3, TICKS_PER_SECOND)) {
+            recorded.setRecorder(recorder);
+
+            walkToShop(recorded);
+            recorded.interact();
+            assertTrue(recorded.inShop());
+            tick(recorded, 10);
+
+            recorded.interact();
+            assertFalse(recorded.inShop());
+            tick(recorded, 10);
+
+            recorded.toggleShop();
+            recorded.toggleShop();
+            recorded.interact();
+            recorded.buyLantern();
+            tick(recorded, 10);
+            assertTrue(recorded.inShop());
+
+            recorder.close(recorded.getTick());
+        }
+
+        try (ReplayPlayer player = new ReplayPlayer(file)) {
+            player.play();
+            Simulation replayed = player.getSimulation();
+
+            assertEquals(recorded.getTick(), replayed.getTick());
+            assertEquals(recorded.inShop(), replayed.inShop());
+            assertEquals(recorded.getMaze().getLevel(), replayed.getMaze().getLevel());
+            assertEquals(recorded.getPlayer().getX(), replayed.getPlayer().getX());
+            assertEquals(recorded.getPlayer().getY(), replayed.getPlayer().getY());
+            assertEquals(recorded.getPlayer().getCoins(), replayed.getPlayer().getCoins());
+            assertEquals(recorded.getPlayer().getLanternLevel(), replayed.getPlayer().getLanternLevel());
+        }
+    }
+
+    // Follows the shop distance field with held movement keys, centering across the corridor before each turn
+    private static void walkToShop(Simulation simulation) {
+        Maze maze = simulation.getMaze();
+        Player player = simulation.getPlayer();
+        int cellSize = maze.getCellSize();
+
+        for (int i = 0; i < 10_000 && !simulation.canEnterShop(); i++) {
+            double centerX = player.getX() + player.getSize() / 2.0;
+            double centerY = player.getY() + player.getSize() / 2.0;
+            int row = (int) (centerY / cellSize);
+            int col = (int) (centerX / cellSize);
+            double offsetX = centerX - (col + 0.5) * cellSize;
+            double offsetY = centerY - (row + 0.5) * cellSize;
+
+            Direction direction = simulation.getPathfinding().nextStepTowardShop(row, col);
+            boolean vertical = direction == Direction.UP || direction == Direction.DOWN;
+            boolean centered = Math.abs(vertical ? offsetX : offsetY) < 2;
+
+            simulation.setMoveUp(centered ? direction == Direction.UP : !vertical && offsetY > 0);
+            simulation.setMoveDown(centered ? direction == Direction.DOWN : !vertical && offsetY < 0);
+            simulation.setMoveLeft(centered ? direction == Direction.LEFT : vertical && offsetX > 0);
+            simulation.setMoveRight(centered ? direction == Direction.RIGHT : vertical && offsetX < 0);
+            simulation.update(DT);
+        }
+
+        simulation.clearInput();
+        assertTrue(simulation.canEnterShop(), "walked to the shop");
+    }
+
+    private static void tick(Simulation simulation, int ticks) {
+        for (int i = 0; i < ticks; i++) simulation.update(DT);
+    }
+}
@@ -0,0 +1,172 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class SaveGameTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripRestoresEveryCellAndPlayerField() throws IOException {
+        Simulation saved = new Simulation(GameSounds.SILENT, 5);
+        saved.nextLevel();
+        saved.nextLevel();
+        Maze maze = saved.getMaze();
+        Player player = saved.getPlayer();
+
+        // Pickaxe through a wall of the start cell
+        int row = (int) ((player.getY() + player.getSize() / 2.0) / maze.getCellSize());
+        int col = (int) ((player.getX() + player.getSize() / 2.0) / maze.getCellSize());
+        Direction facing = maze.hasWall(row, col, Cell.TOP) ? Direction.UP
+                : maze.hasWall(row, col, Cell.BOTTOM) ? Direction.DOWN
+                : maze.hasWall(row, col, Cell.LEFT) ? Direction.LEFT : Direction.RIGHT;
+        player.restore(5, 1, 1, 1, facing);
+        saved.usePickaxe();
+        assertEquals(0, player.getPickaxes());
+
+        // Collect the first coin, then spend on every upgrade
+        int coin = 0;
+        while (!maze.hasCoin(coin / maze.getCols(), coin % maze.getCols())) coin++;
+        assertTrue(maze.removeCoin(coin / maze.getCols(), coin % maze.getCols()));
+        player.addCoins(1);
+
+        saved.buyLantern();
+        saved.buySpeed();
+        saved.buyPickaxe();
+        player.setX(player.getX() + 3.25);
+        saved.update(1.0 / 60);
+
+        Path file = dir.resolve("run.mzs");
+        SaveGame.write(saved, file);
+
+        Simulation loaded = new Simulation(GameSounds.SILENT, 99);
+        SaveGame.read(file, loaded);
+        Maze restored = loaded.getMaze();
+        Player restoredPlayer = loaded.getPlayer();
+
+        assertEquals(maze.getRunSeed(), restored.getRunSeed());
+        assertEquals(maze.getLevel(), restored.getLevel());
+        assertEquals(maze.getSeed(), restored.getSeed());
+        assertEquals(maze.getRows(), restored.getRows());
+        assertEquals(maze.getCols(), restored.getCols());
+        for (int r = 0; r < maze.getRows(); r++) {
+            for (int c = 0; c < maze.getCols(); c++) {
+                assertEquals(maze.getFlags(r, c), restored.getFlags(r, c), "cell " + r + "," + c);
+            }
+        }
+        assertEquals(maze.getShop().row, restored.getShop().row);
+        assertEquals(maze.getShop().col, restored.getShop().col);
+        assertEquals(maze.getExit().row, restored.getExit().row);
+        assertEquals(maze.getExit().col, restored.getExit().col);
+
+        assertEquals(saved.getTick(), loaded.getTick());
+        assertEquals(player.getX(), restoredPlayer.getX());
+        assertEquals(player.getY(), restoredPlayer.getY());
+        assertEquals(player.getCoins(), restoredPlayer.getCoins());
+        assertEquals(player.getSpeedLevel(), restoredPlayer.getSpeedLevel());
+        assertEquals(player.getLanternLevel(), restoredPlayer.getLanternLevel());
+        assertEquals(player.getPickaxes(), restoredPlayer.getPickaxes());
+        assertEquals(player.getFacing(), restoredPlayer.getFacing());
+        assertEquals(2, restoredPlayer.getSpeedLevel());
+        assertEquals(2, restoredPlayer.getLanternLevel());
+        assertEquals(1, restoredPlayer.getPickaxes());
+    }
+
+    // Every cell's walls cleared in the file: the inside opens up, the outer border still comes back closed
+    @Test
+    void openedBorderIsClosedOnLoad() throws IOException {
+        Simulation saved = new Simulation(GameSounds.SILENT, 5);
+        Path file = dir.resolve("edited.mzs");
+        SaveGame.write(saved, file);
+
+        Maze maze = saved.getMaze();
+        byte[] bytes = Files.readAllBytes(file);
+        int cellBytes = (maze.getRows() * maze.getCols() + 1) / 2;
+        Arrays.fill(bytes, bytes.length - cellBytes, bytes.length, (byte) 0);
+        Files.write(file, bytes);
+
+        Simulation loaded = new Simulation(GameSounds.SILENT, 5);
+        SaveGame.read(file, loaded);
+        Maze restored = loaded.getMaze();
+        int rows = restored.getRows();
+        int cols = restored.getCols();
+
+        for (int r = 0; r < rows; r++) {
+            assertTrue(restored.hasWall(r, 0, Cell.LEFT));
+            assertTrue(restored.hasWall(r, cols - 1, Cell.RIGHT));
+        }
+        for (int c = 0; c < cols; c++) {
+            assertTrue(restored.hasWall(0, c, Cell.TOP));
+            assertTrue(restored.hasWall(rows - 1, c, Cell.BOTTOM));
+        }
+        assertFalse(restored.hasWall(1, 1, Cell.TOP));
+    }
+
+    // Header offsets of the fields the cases below edit
+    private static final int SHOP_ROW = 33;
+    private static final int EXIT_ROW = 41;
+    private static final int X = 49;
+    private static final int Y = 57;
+    private static final int COINS = 65;
+    private static final int SPEED_LEVEL = 69;
+    private static final int LANTERN_LEVEL = 73;
+    private static final int PICKAXES = 77;
+
+    @ParameterizedTest
+    @ValueSource(strings = { "x is NaN", "y is infinite", "x is negative", "past the right edge", "past the bottom edge",
+            "negative coins", "speed level 0", "speed over the cap", "lantern over the cap", "negative pickaxes",
+            "pickaxes over the cap", "shop on the exit" })
+    void outOfRangePlayerOrItemsAreRejected(String edit) throws IOException {
+        Simulation saved = new Simulation(GameSounds.SILENT, 5);
+        Path file = dir.resolve("edited.mzs");
+        SaveGame.write(saved, file);
+
+        Maze maze = saved.getMaze();
+        double width = maze.getCols() * maze.getCellSize();
+        double height = maze.getRows() * maze.getCellSize();
+        int size = saved.getPlayer().getSize();
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        switch (edit) {
+            case "x is NaN" -> bytes.putDouble(X, Double.NaN);
+            case "y is infinite" -> bytes.putDouble(Y, Double.POSITIVE_INFINITY);
+            case "x is negative" -> bytes.putDouble(X, -1);
+            case "past the right edge" -> bytes.putDouble(X, width - size + 0.5);
+            case "past the bottom edge" -> bytes.putDouble(Y, height - size + 0.5);
+            case "negative coins" -> bytes.putInt(COINS, -1);
+            case "speed level 0" -> bytes.putInt(SPEED_LEVEL, 0);
+            case "speed over the cap" -> bytes.putInt(SPEED_LEVEL, Player.MAX_SPEED_LEVEL + 1);
+            case "lantern over the cap" -> bytes.putInt(LANTERN_LEVEL, Player.MAX_LANTERN_LEVEL + 1);
+            case "negative pickaxes" -> bytes.putInt(PICKAXES, -1);
+            case "pickaxes over the cap" -> bytes.putInt(PICKAXES, Player.MAX_PICKAXES + 1);
+            case "shop on the exit" -> bytes.putLong(SHOP_ROW, bytes.getLong(EXIT_ROW));
+            default -> throw new IllegalArgumentException(edit);
+        }
+        Files.write(file, bytes.array());
+
+        Simulation loaded = new Simulation(GameSounds.SILENT, 99);
+        double x = loaded.getPlayer().getX();
+        Maze before = loaded.getMaze();
+
+        IOException error = assertThrows(IOException.class, () -> SaveGame.read(file, loaded));
+        assertTrue(error.getMessage().startsWith("Corrupt save file"));
+
+        // Nothing of the rejected save is applied
+        assertEquals(x, loaded.getPlayer().getX());
+        assertEquals(1, loaded.getPlayer().getSpeedLevel());
+        assertEquals(before.getSeed(), loaded.getMaze().getSeed());
+    }
+}